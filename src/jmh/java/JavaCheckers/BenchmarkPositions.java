@@ -0,0 +1,103 @@
+package JavaCheckers;
+
+/**
+ * BenchmarkPositions is the fixed set of positions the benchmarks run on,
+ * so that results from different versions of the engine can be compared.
+ * Positions are in CheckersEngine's text format, followed by the side to
+ * move ("p" for PLAYER, "e" for ENEMY).
+ *
+ * <p> The positions were taken from games the engine played against
+ * itself: openings from the first few moves, middle games with 14 to 18
+ * pieces left, and endgames with kings where the side to move has a jump.
+ *
+ * @author Jason Hamilton
+ */
+final class BenchmarkPositions
+{
+    /**
+     * Starting position and early opening positions
+     */
+    static final String[] OPENING = {
+        "eeeeeeeeeeee........pppppppppppp p",
+        "eeee.eeeeeeee...pp....pppppppppp e",
+        ".eeeeeeeeeeee...p.p..p.ppppppppp p",
+        "eeee.eeeeeeee...p.p...pppppppppp e",
+        "eeeeeeee..eepe..p.....pppppppppp p",
+    };
+
+    /**
+     * Middle game positions
+     */
+    static final String[] MIDGAME = {
+        "...eeeeee..e....p.pp.......pppp. e",
+        "...e..eeeeee...pp.p........pppp. p",
+        "...e..ee.eeee..pp.p......p.p.pp. p",
+        ".....e.eeeee....p..p.e.ep..p.pp. p",
+        "..P..e...eeee.e.p....e.ep..p.pp. e",
+        "...eeeee.eee....p.p...pp.p.p..pp p",
+    };
+
+    /**
+     * Endgame positions with kings, each with a jump for the side to move
+     */
+    static final String[] ENDGAME = {
+        "....P....e..e.p.pe...pe......p.. e",
+        "....P....e..e.p.p.....e...e..p.. p",
+        ".............Pp.pe....e...e..p.. p",
+        ".E..P...........pP.......p.....E e",
+        "..E......E...P....p............. p",
+        "P........E...p.................. e",
+    };
+
+    /**
+     * Not meant to be instantiated; all members are static.
+     */
+    private BenchmarkPositions()
+    {
+    }
+
+    /**
+     * Returns the positions of one phase of the game.
+     *
+     * @param phase "opening", "midgame" or "endgame"
+     * @return positions of that phase
+     */
+    static String[] get(String phase)
+    {
+        switch (phase)
+        {
+            case "opening":
+                return OPENING;
+            case "midgame":
+                return MIDGAME;
+            case "endgame":
+                return ENDGAME;
+            default:
+                throw new IllegalArgumentException("unknown phase: " + phase);
+        }
+    }
+
+    /**
+     * Creates a board set up with a position.
+     *
+     * @param entry position text and side to move, as stored in the arrays
+     * @return new board with the position
+     */
+    static GameBoard board(String entry)
+    {
+        CheckersEngine engine = new CheckersEngine(1);
+        engine.setPosition(entry.substring(0, 32));
+        return engine.getBoard();
+    }
+
+    /**
+     * Returns the side to move in a position.
+     *
+     * @param entry position text and side to move, as stored in the arrays
+     * @return GameBoard.PLAYER or GameBoard.ENEMY
+     */
+    static int sideToMove(String entry)
+    {
+        return entry.endsWith("e") ? GameBoard.ENEMY : GameBoard.PLAYER;
+    }
+}
@@ -0,0 +1,234 @@
+package JavaCheckers;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the GameBoard operations the AI spends its time in: move
+ * generation, making moves and scoring positions.  Each operation runs
+ * once on every position of the chosen game phase (see
+ * BenchmarkPositions), so the time per op covers the whole set.
+ *
+ * <p> Run with "-prof gc" to see the allocation rate as well.
+ *
+ * @author Jason Hamilton
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveGenerationBenchmark
+{
+    /**
+     * Game phase of the positions to run on
+     */
+    @Param({"opening", "midgame", "endgame"})
+    public String phase;
+
+    private GameBoard[] boards;
+    private int[] players;
+
+    // legal moves of each position, for the makeMove benchmarks
+    private CheckersMove[][] legalMoves;
+
+    // the same moves packed, with the squares each one captures
+    private int[][] packedMoves;
+    private int[][] packedCaptures;
+
+    // squares of the side to move's pieces in each position, as row * 8 + col
+    private int[][] pieceSquares;
+
+    private final int[] moveBuffer = new int[AISearch.MAX_MOVES];
+    private final int[] captureBuffer = new int[AISearch.MAX_MOVES];
+    private final MoveUndo undo = new MoveUndo();
+    private final Evaluator weightedEvaluator = new WeightedEvaluator();
+
+    /**
+     * Sets up the boards of the chosen phase.
+     */
+    @Setup
+    public void setUp()
+    {
+        String[] positions = BenchmarkPositions.get(phase);
+        boards = new GameBoard[positions.length];
+        players = new int[positions.length];
+        legalMoves = new CheckersMove[positions.length][];
+        packedMoves = new int[positions.length][];
+        packedCaptures = new int[positions.length][];
+        pieceSquares = new int[positions.length][];
+
+        for (int i = 0; i < positions.length; i++)
+        {
+            boards[i] = BenchmarkPositions.board(positions[i]);
+            players[i] = BenchmarkPositions.sideToMove(positions[i]);
+            legalMoves[i] = boards[i].getLegalTurns(players[i]);
+
+            int moveCount = boards[i].getLegalTurns(players[i], moveBuffer, captureBuffer, 0);
+            packedMoves[i] = Arrays.copyOf(moveBuffer, moveCount);
+            packedCaptures[i] = Arrays.copyOf(captureBuffer, moveCount);
+
+            int[] squares = new int[32];
+            int count = 0;
+
+            for (int square = 0; square < 32; square++)
+            {
+                int row = Bitboard.row(square);
+                int col = Bitboard.col(square);
+                int piece = boards[i].pieceAt(row, col);
+
+                if (piece != GameBoard.EMPTY
+                        && (piece <= GameBoard.PLAYER_KING) == (players[i] == GameBoard.PLAYER))
+                {
+                    squares[count++] = row * 8 + col;
+                }
+            }
+
+            pieceSquares[i] = Arrays.copyOf(squares, count);
+        }
+    }
+
+    /**
+     * GameBoard.getLegalMoves(int), which returns a new array of moves.
+     */
+    @Benchmark
+    public void getLegalMoves(Blackhole blackhole)
+    {
+        for (int i = 0; i < boards.length; i++)
+        {
+            blackhole.consume(boards[i].getLegalMoves(players[i]));
+        }
+    }
+
+    /**
+     * GameBoard.getLegalTurns(int), which returns a new array of complete
+     * turns.
+     */
+    @Benchmark
+    public void getLegalTurns(Blackhole blackhole)
+    {
+        for (int i = 0; i < boards.length; i++)
+        {
+            blackhole.consume(boards[i].getLegalTurns(players[i]));
+        }
+    }
+
+    /**
+     * GameBoard.getLegalTurns(int, int[], int[], int), which packs the
+     * complete turns into reusable arrays as AISearch and Perft do.
+     */
+    @Benchmark
+    public int getLegalTurnsPacked()
+    {
+        int moves = 0;
+
+        for (int i = 0; i < boards.length; i++)
+        {
+            moves += boards[i].getLegalTurns(players[i], moveBuffer, captureBuffer, 0);
+        }
+
+        return moves;
+    }
+
+    /**
+     * GameBoard.getLegalJumpsFrom(), for every piece of the side to move.
+     */
+    @Benchmark
+    public void getLegalJumpsFrom(Blackhole blackhole)
+    {
+        for (int i = 0; i < boards.length; i++)
+        {
+            for (int square : pieceSquares[i])
+            {
+                blackhole.consume(boards[i].getLegalJumpsFrom(players[i],
+                        square / 8, square % 8));
+            }
+        }
+    }
+
+    /**
+     * GameBoard.makeMove() on a new copy of the board for every legal move,
+     * as doRecursiveAI does.
+     */
+    @Benchmark
+    public void makeMove(Blackhole blackhole)
+    {
+        for (int i = 0; i < boards.length; i++)
+        {
+            for (CheckersMove move : legalMoves[i])
+            {
+                GameBoard copy = new GameBoard(boards[i]);
+                copy.makeMove(move);
+                blackhole.consume(copy);
+            }
+        }
+    }
+
+    /**
+     * GameBoard.makeMove() and unmakeMove() in place for every legal move,
+     * as AISearch does.
+     */
+    @Benchmark
+    public long makeUnmakeMove()
+    {
+        long hashes = 0;
+
+        for (int i = 0; i < boards.length; i++)
+        {
+            for (int k = 0; k < packedMoves[i].length; k++)
+            {
+                boards[i].makeMove(packedMoves[i][k], packedCaptures[i][k], undo);
+                hashes += boards[i].getHash(players[i]);
+                boards[i].unmakeMove(packedMoves[i][k], undo);
+            }
+        }
+
+        return hashes;
+    }
+
+    /**
+     * GameBoard.getBoardScore(), the evaluation used at every leaf.
+     */
+    @Benchmark
+    public double getBoardScore()
+    {
+        double score = 0;
+
+        for (GameBoard board : boards)
+        {
+            score += board.getBoardScore();
+        }
+
+        return score;
+    }
+
+    /**
+     * WeightedEvaluator.evaluate(), the feature-weighted evaluation.
+     */
+    @Benchmark
+    public double weightedEvaluate()
+    {
+        double score = 0;
+
+        for (GameBoard board : boards)
+        {
+            score += weightedEvaluator.evaluate(board);
+        }
+
+        return score;
+    }
+}
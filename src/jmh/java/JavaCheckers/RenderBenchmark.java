@@ -0,0 +1,158 @@
+package JavaCheckers;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of drawing the game board: one frame of GameBoardPanel as the
+ * user picks a move, one frame of a jump being animated, whole and clipped
+ * to its dirty rectangle, and rebuilding the sprite list after a move.
+ * The panel paints into an off-screen image, so no display is needed.
+ *
+ * <p> Run with "-prof gc"; the gc.alloc.rate.norm of the whole frame
+ * benchmarks should be 0 bytes per op.
+ *
+ * @author Jason Hamilton
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RenderBenchmark
+{
+    private CheckersGame game;
+    private GameBoardPanel panel;
+    private BufferedImage canvas;
+    private Graphics2D graphics;
+
+    // graphics of the canvas clipped to a jump frame's dirty rectangle
+    private Graphics2D dirtyGraphics;
+
+    // image of the piece being jumped in paintJumpFrame
+    private BufferedImage jumpPiece;
+
+    // animation frames drawn so far, to step the jumped piece's opacity
+    private int frame;
+
+    /**
+     * Sets up a game at the starting position with a piece selected.
+     */
+    @Setup
+    public void setUp()
+    {
+        game = new CheckersGame();
+        game.engine = new CheckersEngine(1);
+        game.loadImages();
+        game.middlePanel = new GameBoardPanel(game);
+        game.middlePanel.resetAnimMove();
+        game.gameInProgress = true;
+        game.waitingForInput = true;
+        game.legalMoves = game.engine.getLegalMoves(GameBoard.PLAYER);
+        game.selectedRow = game.legalMoves[0].fromRow;
+        game.selectedCol = game.legalMoves[0].fromCol;
+        panel = game.middlePanel;
+        panel.getPiecePositions();
+
+        canvas = new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB);
+        graphics = canvas.createGraphics();
+        dirtyGraphics = canvas.createGraphics();
+        dirtyGraphics.clipRect(50, 100, 100, 100);
+
+        jumpPiece = new BufferedImage(50, 50, BufferedImage.TYPE_INT_ARGB);
+        jumpPiece.getGraphics().drawImage(game.img_redPiece, 0, 0, null);
+    }
+
+    /**
+     * Releases the canvas's graphics.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        graphics.dispose();
+        dirtyGraphics.dispose();
+    }
+
+    /**
+     * A frame while the user picks a move: the board, the selected piece,
+     * the outlines of the movable pieces and of the squares the selected
+     * one can move to, and the pieces.
+     */
+    @Benchmark
+    public BufferedImage paintSelection()
+    {
+        game.waitingForInput = true;
+        game.img_jumpPiece = null;
+        panel.paintComponent(graphics);
+        return canvas;
+    }
+
+    /**
+     * A frame of a jump: the board, the jumped piece fading out and the
+     * pieces, one of them part way along its move.  Each op draws the next
+     * of the fade's opacity levels.
+     */
+    @Benchmark
+    public BufferedImage paintJumpFrame()
+    {
+        return paintJump(graphics);
+    }
+
+    /**
+     * The same frame of a jump, clipped to what GameBoardPanel.nextFrame()
+     * marks dirty: the squares of the moving sprite and the fading piece,
+     * which Swing repaints as one 100x100 rectangle.
+     */
+    @Benchmark
+    public BufferedImage paintJumpDirtyRect()
+    {
+        return paintJump(dirtyGraphics);
+    }
+
+    /**
+     * Paints the next frame of the jump benchmarks.
+     *
+     * @param g graphics to paint the panel with
+     * @return the canvas painted on
+     */
+    private BufferedImage paintJump(Graphics2D g)
+    {
+        game.waitingForInput = false;
+        game.img_jumpPiece = jumpPiece;
+        game.jumpedRow = 3;
+        game.jumpedCol = 2;
+        game.jumpOpacity = (float) (frame++ % GameBoardPanel.FADE_STEPS)
+                / (GameBoardPanel.FADE_STEPS - 1);
+
+        // a piece part way along its jump from row 2, col 1 to row 4, col 3
+        panel.pieces.get(0).x = 50 + frame % 50;
+        panel.pieces.get(0).y = 100 + frame % 50;
+        panel.paintComponent(g);
+        return canvas;
+    }
+
+    /**
+     * GameBoardPanel.getPiecePositions(), which is run at the start and end
+     * of every move.
+     */
+    @Benchmark
+    public GameBoardPanel getPiecePositions()
+    {
+        panel.getPiecePositions();
+        return panel;
+    }
+}
@@ -0,0 +1,126 @@
+package JavaCheckers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of a complete AI search at each difficulty level, on every
+ * position of the chosen game phase (see BenchmarkPositions).  Both the
+ * original GameBoard.doRecursiveAI and AISearch (without a transposition
+ * table, so each op does the same work) are measured.
+ *
+ * <p> Results are in searches of the whole position set per second; the
+ * "nodes" counter gives the positions visited per second.  Run with
+ * "-prof gc" to see the allocation rate as well.
+ *
+ * @author Jason Hamilton
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark
+{
+    /**
+     * Game phase of the positions to run on
+     */
+    @Param({"opening", "midgame", "endgame"})
+    public String phase;
+
+    /**
+     * Difficulty level, as chosen in the New Game dialog (0 easy, 1 medium,
+     * 2 hard)
+     */
+    @Param({"0", "1", "2"})
+    public int difficulty;
+
+    private GameBoard[] boards;
+    private AISearch[] searches;
+    private int[] players;
+
+    /**
+     * Positions visited by the searches, reported by JMH per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes
+    {
+        public long nodes;
+
+        /**
+         * Resets the count before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            nodes = 0;
+        }
+    }
+
+    /**
+     * Sets up the boards of the chosen phase at the chosen difficulty.
+     */
+    @Setup
+    public void setUp()
+    {
+        String[] positions = BenchmarkPositions.get(phase);
+        boards = new GameBoard[positions.length];
+        searches = new AISearch[positions.length];
+        players = new int[positions.length];
+
+        for (int i = 0; i < positions.length; i++)
+        {
+            boards[i] = BenchmarkPositions.board(positions[i]);
+            boards[i].setDifficulty(difficulty);
+            searches[i] = new AISearch(boards[i]);
+            players[i] = BenchmarkPositions.sideToMove(positions[i]);
+        }
+    }
+
+    /**
+     * The original copying minimax search.  Every position it visits
+     * after the root is a board copy, so the copy count is its node count.
+     */
+    @Benchmark
+    public void doRecursiveAI(Nodes counter, Blackhole blackhole)
+    {
+        long copies = GameBoard.getBoardCopies();
+
+        for (int i = 0; i < boards.length; i++)
+        {
+            blackhole.consume(boards[i].doRecursiveAI(boards[i],
+                    new CheckersMove(0, 0, 0, 0), 0, players[i]));
+        }
+
+        counter.nodes += GameBoard.getBoardCopies() - copies;
+    }
+
+    /**
+     * The in-place alpha-beta search the game uses, without a table.
+     */
+    @Benchmark
+    public void aiSearch(Nodes counter, Blackhole blackhole)
+    {
+        for (int i = 0; i < boards.length; i++)
+        {
+            blackhole.consume(searches[i].search(players[i]));
+            counter.nodes += searches[i].nodes;
+        }
+    }
+}
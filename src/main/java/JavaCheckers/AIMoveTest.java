@@ -63,10 +63,7 @@ public class AIMoveTest
     */
    public void setAll(JavaCheckers.CheckersMove newMove, double newScore)
    {
-      move.fromRow = newMove.fromRow;
-      move.fromCol = newMove.fromCol;
-      move.toRow = newMove.toRow;
-      move.toCol = newMove.toCol;
+      move.set(newMove);
       score = newScore;
    }
    
@@ -75,10 +72,11 @@ public class AIMoveTest
     * by testing to see if the defaults have been updated with a new value.
     * Assumes that the move values are legal if they have been modified.
     * 
-    * @return true if the source/target locations are not the same, false if not
+    * @return true if the source/target locations are not the same or the
+    *         move is a series jump (which can end where it started), false if not
     */
    public boolean hasMove()
    {
-      return (move.toRow != move.fromRow);
+      return (move.toRow != move.fromRow || move.isJump());
    }
 }
@@ -0,0 +1,1374 @@
+package JavaCheckers;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * AISearch runs the same minimax search as GameBoard.doRecursiveAI, but
+ * tests every move on one board in place instead of creating a new
+ * GameBoard for each move.  A move is made, the search recurses, and the
+ * move is taken back using the MoveUndo record saved for that level.
+ *
+ * <p> Moves are generated as PackedMoves into one int array shared by all
+ * levels, and the undo records for every level are created once and
+ * reused, so testing a move does not allocate any objects.  The board
+ * is left exactly as it was found when search() returns.
+ *
+ * <p> By default the search uses alpha-beta pruning: once a move is found
+ * that the opponent would never allow, the remaining moves at that level
+ * are skipped.  To make those cutoffs happen early, moves below the root
+ * are tried in order of jumps (king captures first), promotions, and then
+ * "killer" moves that caused a cutoff elsewhere at the same level.  The
+ * root moves are always tried in their generated order and only replaced
+ * by a strictly better score, so the chosen move is the same one plain
+ * minimax would choose.
+ *
+ * <p> If a TranspositionTable is given, positions are looked up before
+ * they are searched and stored afterwards.  A stored
+ * result is reused when it was searched at least as deep as needed, so
+ * a position reached again through a different move order is not
+ * searched twice.  A stored result may come from a deeper search than the
+ * current one, so with a table the chosen move can differ from plain
+ * minimax at the same maxLevels.
+ *
+ * <p> With setParallel() the search is spread over the threads of a
+ * ForkJoinPool using Young Brothers Wait: at the top levels of the tree the
+ * first move is searched alone, and once its score is known the remaining
+ * moves are searched at the same time as separate tasks.  Each task works
+ * on its own copy of the board, and all of them share the transposition
+ * table.  The results are combined in the same order and with the same tie
+ * rule as the serial search, so without a table the same move is chosen.
+ * If one of the moves causes a cutoff, the tasks still running for its
+ * brothers are cancelled.
+ *
+ * <p> With setTablebase() the positions covered by an endgame Tablebase are
+ * scored from it instead of being searched, and if the root position is
+ * covered its move is chosen from the tablebase without searching at all.
+ *
+ * <p> With setQuiescence() a position beyond maxLevels is only scored once
+ * it is quiet.  If the side to move has a capture, which it is forced to
+ * make, the captures are searched first (see searchCaptures()), so a piece
+ * about to be lost just past the last level is not scored as still on the
+ * board.  This changes the scores, so it is off unless set.
+ *
+ * @author Jason Hamilton
+ */
+public class AISearch
+{
+    /**
+     * Room for the legal moves of one position.  Regular moves are at most
+     * 48 (12 kings with all four directions open); series jumps can have
+     * more, since every different path is a separate move.
+     */
+    static final int MAX_MOVES = 128;
+
+    /**
+     * Deepest search an iterative deepening search will try, unless the
+     * board's own maxLevels is deeper
+     */
+    static final int MAX_LEVELS = 64;
+
+    /**
+     * The clock is checked each time this many more positions (plus one)
+     * have been visited
+     */
+    private static final int TIME_CHECK_MASK = 1023;
+
+    /**
+     * Most turns a capture sequence past maxLevels can have: every turn
+     * captures at least one of the 24 pieces, and it ends when a side has
+     * none left
+     */
+    private static final int MAX_CAPTURE_PLIES = 24;
+
+    /**
+     * Board being searched.  Moves are made and taken back on it directly.
+     * A helper search used by a parallel search is given a new board for
+     * each task it runs.
+     */
+    private GameBoard board;
+
+    /**
+     * Table of previously searched positions, or null to search without one
+     */
+    private final TranspositionTable table;
+
+    /**
+     * Endgame results to score positions with few pieces by, or null
+     */
+    private Tablebase tablebase;
+
+    /**
+     * Score of a tablebase win at distance 0.  Each ply of distance takes
+     * 0.01 off, so shorter wins and longer losses are preferred.  Even at
+     * the longest distance, 127 plies, a win stays above Evaluator.MAX_SCORE,
+     * the highest evaluation of a position that is not won.
+     */
+    static final double TABLEBASE_WIN = 99;
+
+    /**
+     * True to resolve pending captures before scoring a position beyond
+     * maxLevels
+     */
+    private boolean quiescence;
+
+    /**
+     * Reusable copy of the last entry found in the table
+     */
+    private final TableEntry tableEntry = new TableEntry();
+
+    /**
+     * How many turns ahead the current search goes, as in GameBoard.maxLevels
+     */
+    private int maxLevels;
+
+    /**
+     * Deepest search the move buffers have room for
+     */
+    private final int levelCapacity;
+
+    /**
+     * Legal moves of every search level as PackedMoves, MAX_MOVES of room
+     * per level starting at ply * MAX_MOVES
+     */
+    private final int[] moveStack;
+
+    /**
+     * Squares captured by each move in moveStack, at the same index
+     */
+    private final int[] captureStack;
+
+    /**
+     * Reusable undo records, one per search level
+     */
+    private final MoveUndo[] undoRecords;
+
+    /**
+     * Number of killer moves remembered for each level
+     */
+    private static final int KILLERS = 2;
+
+    /**
+     * Reusable move ordering keys, one array per search level
+     */
+    private final int[][] orderKeys;
+
+    /**
+     * Moves that caused a cutoff at each level, stored as their squares (the
+     * low bits of a PackedMove), most recent first
+     */
+    private final int[][] killers;
+
+    /**
+     * True to use alpha-beta pruning and move ordering, false to visit every
+     * move like doRecursiveAI does.  Both give the same move and score.
+     */
+    boolean alphaBeta = true;
+
+    /**
+     * Number of positions visited by the last search
+     */
+    long nodes;
+
+    /**
+     * Number of times the last search skipped the remaining moves at a
+     * level because of an alpha-beta cutoff
+     */
+    long cutoffs;
+
+    /**
+     * Number of positions the last search scored from the tablebase
+     */
+    long tablebaseHits;
+
+    /**
+     * Number of GameBoard copies made during the last search
+     */
+    long boardCopies;
+
+    /**
+     * Deepest number of levels (as in GameBoard.maxLevels) the last search
+     * finished, or -1 if it did not finish any
+     */
+    int levelsCompleted;
+
+    /**
+     * System.nanoTime() at which the current search must stop, or 0 if it
+     * has no time limit
+     */
+    private long deadline;
+
+    /**
+     * Set when the deadline passes, to unwind the search in progress
+     */
+    private boolean aborted;
+
+    /**
+     * Move the root should try first in the current search, or NO_MOVE
+     */
+    private int rootFirstMove;
+
+    /**
+     * Board copy count when the current search started
+     */
+    private long startCopies;
+
+    /**
+     * Threads used to search in parallel, or null to search on the calling
+     * thread only
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Positions less than this many plies from the root have their moves
+     * searched in parallel (1 splits only the root moves)
+     */
+    private int splitLevels;
+
+    /**
+     * Idle helper searches, reused by the tasks of a parallel search so
+     * their move buffers are only created once.  Shared by the root search
+     * and all of its helpers.
+     */
+    private ConcurrentLinkedQueue<AISearch> helpers;
+
+    /**
+     * Split point the task this helper is running belongs to, or null for
+     * the root search
+     */
+    private SplitPoint split;
+
+    /**
+     * Set by stop() to end the current search from another thread
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Search whose stop() ends this one: this search, or for a helper the
+     * search it is helping
+     */
+    private AISearch root = this;
+
+    /**
+     * Told about each level an iterative deepening search finishes, or null
+     */
+    private SearchProgress progress;
+
+    /**
+     * First number of levels an iterative deepening search tries
+     */
+    private int firstLevel;
+
+    /**
+     * If not 0, shuffles the order of moves with the same ordering key, so
+     * that searches of the same position on several threads do not all
+     * visit the same moves first
+     */
+    private int orderVariation;
+
+    /**
+     * True if each search starts a new search of the transposition table
+     * (see TranspositionTable.newSearch()).  False when a LazySMPSearch
+     * shares the table between threads and starts the new search itself.
+     */
+    private boolean agesTable = true;
+
+    /**
+     * Constructor.  Prepares the move buffers and undo records for searching
+     * the given board to its current maxLevels, without a transposition table.
+     *
+     * @param gameBoard board to search; it is modified during the search and
+     *                  restored before search() returns
+     */
+    AISearch(GameBoard gameBoard)
+    {
+        this(gameBoard, null);
+    }
+
+    /**
+     * Constructor.  Prepares the move buffers and undo records for searching
+     * the given board to its current maxLevels, sharing results with other
+     * searches through the given transposition table.
+     *
+     * @param gameBoard board to search; it is modified during the search and
+     *                  restored before search() returns
+     * @param transpositionTable table of searched positions, or null for none
+     */
+    AISearch(GameBoard gameBoard, TranspositionTable transpositionTable)
+    {
+        board = gameBoard;
+        table = transpositionTable;
+        maxLevels = gameBoard.maxLevels;
+        levelCapacity = Math.max(MAX_LEVELS, maxLevels);
+
+        int levels = levelCapacity + 2 + MAX_CAPTURE_PLIES;
+        moveStack = new int[levels * MAX_MOVES];
+        captureStack = new int[levels * MAX_MOVES];
+        undoRecords = new MoveUndo[levels];
+        orderKeys = new int[levels][MAX_MOVES];
+        killers = new int[levels][KILLERS];
+
+        for (int i = 0; i < levels; i++)
+        {
+            undoRecords[i] = new MoveUndo();
+        }
+    }
+
+    /**
+     * Makes the following searches run in parallel on the given pool.  The
+     * moves of every position less than splitLevels plies from the root are
+     * split between the pool's threads, once the first of them has been
+     * searched.  Splitting only the root (1) has the least overhead; a
+     * higher value keeps more threads busy when the root has few moves or
+     * one of them takes much longer than the others.
+     *
+     * @param forkJoinPool threads to search with, or null to search serially
+     * @param levels number of plies from the root to split, at least 1
+     */
+    public void setParallel(ForkJoinPool forkJoinPool, int levels)
+    {
+        pool = forkJoinPool;
+        splitLevels = (forkJoinPool != null) ? Math.max(1, levels) : 0;
+        helpers = (forkJoinPool != null) ? new ConcurrentLinkedQueue<>() : null;
+    }
+
+    /**
+     * Makes the following searches score the positions an endgame
+     * tablebase covers from the tablebase instead of searching them.
+     *
+     * @param endgames tablebase to probe, or null to search every position
+     */
+    public void setTablebase(Tablebase endgames)
+    {
+        tablebase = endgames;
+    }
+
+    /**
+     * Makes the following searches resolve pending captures before scoring
+     * a position beyond maxLevels (see searchCaptures()).
+     *
+     * @param enabled true to search captures at the leaves, false to score
+     *                the leaves as they are, like doRecursiveAI
+     */
+    public void setQuiescence(boolean enabled)
+    {
+        quiescence = enabled;
+    }
+
+    /**
+     * Sets up this search as a helper of a Lazy SMP search (see
+     * LazySMPSearch).  The helper starts iterative deepening at firstLevels
+     * instead of 0, and tries moves with equal ordering keys in an order
+     * chosen by variation, so it searches beside the main search and fills
+     * the shared transposition table with different positions.  It leaves
+     * aging the shared table to the LazySMPSearch.
+     *
+     * @param firstLevels number of levels the first iteration searches
+     * @param variation 0 for the normal move order, anything else to shuffle it
+     */
+    void setHelper(int firstLevels, int variation)
+    {
+        firstLevel = Math.max(0, firstLevels);
+        orderVariation = variation;
+        agesTable = false;
+    }
+
+    /**
+     * Sets whether each search starts a new search of the transposition
+     * table.  A LazySMPSearch turns this off for its main thread, since it
+     * starts the new search once for all its threads.
+     *
+     * @param enabled false if the owner of the table starts each search
+     */
+    void setAgesTable(boolean enabled)
+    {
+        agesTable = enabled;
+    }
+
+    /**
+     * Makes the following iterative deepening searches report each level
+     * they finish.
+     *
+     * @param listener told about each finished level, or null
+     */
+    public void setProgress(SearchProgress listener)
+    {
+        progress = listener;
+    }
+
+    /**
+     * Ends the search in progress (on another thread) as if its time had
+     * run out, and any search started afterwards.  Unlike the time limit,
+     * this also abandons the first level, in which case search() returns
+     * null.  The helpers of a parallel search stop as well.
+     */
+    public void stop()
+    {
+        stopped = true;
+    }
+
+    /**
+     * Finds the best move for the given player.  Returns the same move and
+     * score as the root call of GameBoard.doRecursiveAI for the current
+     * position.  The move is a complete turn (see GameBoard.getLegalTurns()),
+     * so a series jump is returned with its whole path.
+     *
+     * @param player One of the enumerated player values indicating which player's turn it is
+     * @return move with the best score for the current player (with rows/cols)
+     */
+    public AIMoveTest search(int player)
+    {
+        startSearch(0);
+        AIMoveTest bestScore = searchTablebase(player);
+
+        if (bestScore == null)
+        {
+            bestScore = searchRoot(player, board.maxLevels, TranspositionTable.NO_MOVE);
+        }
+
+        levelsCompleted = board.maxLevels;
+        finishSearch();
+
+        return bestScore;
+    }
+
+    /**
+     * Finds the best move for the given player within a time limit, using
+     * iterative deepening.  The position is searched 0 levels deep (one
+     * turn ahead), then 1 level, then 2, and so on up to maxLevels, with
+     * each search trying the previous search's best move first.  When the
+     * time runs out the search in progress is abandoned and the move from
+     * the last search that finished is returned.
+     *
+     * <p> The 0 level search always finishes, however little time is given,
+     * so a move is always returned if one exists.  The levels reached are
+     * available afterwards in levelsCompleted.
+     *
+     * @param player One of the enumerated player values indicating which player's turn it is
+     * @param maxLevels deepest search to try, as in GameBoard.maxLevels
+     * @param timeLimit milliseconds allowed for the search
+     * @return move with the best score for the current player (with rows/cols)
+     */
+    public AIMoveTest search(int player, int maxLevels, long timeLimit)
+    {
+        startSearch(timeLimit);
+        AIMoveTest bestScore = searchTablebase(player);
+        int firstMove = TranspositionTable.NO_MOVE;
+        maxLevels = Math.min(maxLevels, levelCapacity);
+
+        // a tablebase result is exact, nothing deeper to find
+        if (bestScore != null)
+        {
+            levelsCompleted = maxLevels;
+            finishSearch();
+            return bestScore;
+        }
+
+        for (int levels = Math.min(firstLevel, maxLevels); levels <= maxLevels; levels++)
+        {
+            AIMoveTest iteration = searchRoot(player, levels, firstMove);
+
+            if (aborted)
+            {
+                break;
+            }
+
+            bestScore = iteration;
+            levelsCompleted = levels;
+
+            if (progress != null)
+            {
+                progress.levelFinished(levels, iteration);
+            }
+
+            // nothing deeper to find if there is no move to make
+            if (!iteration.hasMove())
+            {
+                break;
+            }
+
+            firstMove = PackedMove.squares(iteration.move);
+        }
+
+        finishSearch();
+        return bestScore;
+    }
+
+    /**
+     * Resets the statistics and killer moves before a new search, and sets
+     * the deadline.
+     *
+     * @param timeLimit milliseconds allowed for the search, 0 for no limit
+     */
+    private void startSearch(long timeLimit)
+    {
+        startCopies = GameBoard.getBoardCopies();
+        deadline = (timeLimit > 0) ? System.nanoTime() + timeLimit * 1000000L : 0;
+        aborted = stopped;
+        levelsCompleted = -1;
+        nodes = 0;
+        cutoffs = 0;
+        tablebaseHits = 0;
+
+        for (int[] levelKillers : killers)
+        {
+            Arrays.fill(levelKillers, -1);
+        }
+
+        if (table != null && agesTable)
+        {
+            table.newSearch();
+        }
+    }
+
+    /**
+     * Records the statistics that are only known once a search is over.
+     */
+    private void finishSearch()
+    {
+        boardCopies = GameBoard.getBoardCopies() - startCopies;
+    }
+
+    /**
+     * Searches the root position to the given number of levels.
+     *
+     * @param player player whose turn it is
+     * @param levels number of levels to search, as in GameBoard.maxLevels
+     * @param firstMove move to try first, or NO_MOVE
+     * @return move with the best score for the current player
+     */
+    private AIMoveTest searchRoot(int player, int levels, int firstMove)
+    {
+        AIMoveTest bestScore = new AIMoveTest(player == GameBoard.ENEMY);
+        maxLevels = levels;
+        rootFirstMove = firstMove;
+
+        if (pool != null)
+        {
+            // the tasks forked by the search have to be forked from inside the pool
+            pool.invoke(ForkJoinTask.adapt(() ->
+                    searchLevel(0, player, 0, -200, 200, bestScore)));
+        }
+        else
+        {
+            searchLevel(0, player, 0, -200, 200, bestScore);
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Recursively scores the current position.  Mirrors the body of
+     * doRecursiveAI: every move is a complete turn, series jumps included,
+     * and positions beyond maxLevels are scored with getBoardScore().
+     *
+     * <p> The alpha/beta window holds the scores the computer (alpha) and
+     * the player (beta) are already guaranteed elsewhere in the tree.  If the
+     * true score lies inside the window it is returned exactly; otherwise
+     * the returned score is only known to be at or beyond the window edge,
+     * which is enough for the caller to reject the move.
+     *
+     * <p> At the root (when bestMove is given) the moves are tried in their
+     * generated order, except that rootFirstMove or the transposition
+     * table's move is tried first.  Ties always go to the move generated
+     * first, the same as minimax: a move that comes before the best move so
+     * far is searched with the window edge just past the best score, so a
+     * tie is found exactly rather than cut off.
+     *
+     * <p> If the deadline passes the search is aborted and every level
+     * returns immediately; the scores returned after that are meaningless
+     * and are not stored.
+     *
+     * @param levelsDeep current recursion depth in turns, 0 at the root
+     * @param player player whose turn it is in the current position
+     * @param ply index of the moves and undo record for this level
+     * @param alpha lowest score the computer is already guaranteed
+     * @param beta highest score the player is already guaranteed
+     * @param bestMove if non-null, receives the best move found at this level
+     * @return best score for the player whose turn it is
+     */
+    private double searchLevel(int levelsDeep, int player, int ply, double alpha,
+                               double beta, AIMoveTest bestMove)
+    {
+        int base = ply * MAX_MOVES;
+        MoveUndo undo = undoRecords[ply];
+        int nextPlayer = (player == GameBoard.ENEMY) ? GameBoard.PLAYER : GameBoard.ENEMY;
+
+        // check the clock every few thousand positions, and never during the first search
+        if ((++nodes & TIME_CHECK_MASK) == 0)
+        {
+            if (deadline != 0 && levelsCompleted >= 0 && System.nanoTime() >= deadline)
+            {
+                aborted = true;
+            }
+
+            // a helper also stops if a brother of its move (or of a move above it) caused a cutoff
+            if (root.stopped || (split != null && split.isCancelled()))
+            {
+                aborted = true;
+            }
+        }
+
+        if (aborted)
+        {
+            return 0;
+        }
+
+        // a position the tablebase covers already has a known result
+        if (bestMove == null && tablebase != null)
+        {
+            int value = probeTablebase(player);
+
+            if (value != Tablebase.UNKNOWN)
+            {
+                tablebaseHits++;
+                return tablebaseScore(value, player);
+            }
+        }
+
+        if (levelsDeep > maxLevels)
+        {
+            return quiescence ? searchCaptures(player, ply, alpha, beta) : board.getBoardScore();
+        }
+
+        //
+        // Look the position up in the transposition table.  A stored score
+        // can be used if it was searched deep enough and is exact, or is a
+        // bound that already falls outside the window.  The root only uses
+        // the stored move, since it has to return a move as well as a score.
+        //
+        int levelsLeft = maxLevels + 1 - levelsDeep;
+        int tableMove = TranspositionTable.NO_MOVE;
+        long key = 0;
+
+        if (table != null)
+        {
+            key = board.getHash(player);
+
+            if (table.probe(key, tableEntry))
+            {
+                tableMove = tableEntry.move;
+
+                if (bestMove == null && tableEntry.depth >= levelsLeft)
+                {
+                    double score = tableEntry.score;
+                    int bound = tableEntry.bound;
+
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && score >= beta)
+                            || (bound == TranspositionTable.UPPER && score <= alpha))
+                    {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        int moveCount = board.getLegalTurns(player, moveStack, captureStack, base);
+
+        int firstIndex = 0;
+
+        if (bestMove == null)
+        {
+            if (alphaBeta)
+            {
+                orderMoves(base, moveCount, ply, tableMove);
+            }
+        }
+        else
+        {
+            int preferred = (rootFirstMove != TranspositionTable.NO_MOVE) ? rootFirstMove : tableMove;
+
+            for (int i = 0; i < moveCount; i++)
+            {
+                if ((moveStack[base + i] & PackedMove.SQUARES) == preferred)
+                {
+                    firstIndex = i;
+                    break;
+                }
+            }
+        }
+
+        boolean maximizing = (player == GameBoard.ENEMY);
+        double bestScore = maximizing ? -200 : 200;
+        int bestIndex = -1;
+        int bestPacked = TranspositionTable.NO_MOVE;
+        SplitPoint splitPoint = null;
+        boolean canSplit = (ply < splitLevels && moveCount > 2 && levelsDeep < maxLevels);
+
+        for (int n = 0; n < moveCount; n++)
+        {
+            // visit firstIndex, then the others in order (firstIndex is 0 below the root)
+            int i = (n == 0) ? firstIndex : (n <= firstIndex ? n - 1 : n);
+            int currMove = moveStack[base + i];
+            int currCaptured = captureStack[base + i];
+            boolean beforeBest = (bestIndex > i);
+            double currScore;
+
+            // the eldest brother is searched, now search all the others at once
+            if (n == 1 && canSplit)
+            {
+                splitPoint = new SplitPoint(split, moveCount);
+
+                for (int m = 1; m < moveCount; m++)
+                {
+                    int k = (m <= firstIndex) ? m - 1 : m;
+                    SearchTask task = new SearchTask(this, splitPoint,
+                            moveStack[base + k], captureStack[base + k],
+                            levelsDeep + 1, nextPlayer, ply + 1,
+                            childAlpha(maximizing, alpha, bestScore, bestIndex > k),
+                            childBeta(maximizing, beta, bestScore, bestIndex > k));
+                    splitPoint.tasks[m] = task;
+                    task.fork();
+                }
+            }
+
+            if (splitPoint != null)
+            {
+                SearchTask task = splitPoint.tasks[n];
+                task.join();
+                nodes += task.nodes;
+                cutoffs += task.cutoffs;
+                tablebaseHits += task.tablebaseHits;
+                currScore = task.score;
+
+                if (task.aborted)
+                {
+                    aborted = true;
+                }
+            }
+            else
+            {
+                board.makeMove(currMove, currCaptured, undo);
+                currScore = searchLevel(levelsDeep + 1, nextPlayer, ply + 1,
+                        childAlpha(maximizing, alpha, bestScore, beforeBest),
+                        childBeta(maximizing, beta, bestScore, beforeBest), null);
+                board.unmakeMove(currMove, undo);
+            }
+
+            if (aborted)
+            {
+                if (splitPoint != null)
+                {
+                    splitPoint.cancel(n + 1, this);
+                }
+
+                return 0;
+            }
+
+            // enemy maximizes the computer's score, player minimizes it
+            if ((maximizing ? currScore > bestScore : currScore < bestScore)
+                    || (currScore == bestScore && beforeBest))
+            {
+                bestScore = currScore;
+                bestIndex = i;
+                bestPacked = currMove & PackedMove.SQUARES;
+
+                if (bestMove != null)
+                {
+                    board.unpackMove(currMove, currCaptured, bestMove.move);
+                    bestMove.score = currScore;
+                }
+            }
+
+            // the opponent already has a better option, skip the other moves
+            if (alphaBeta && (maximizing ? bestScore >= beta : bestScore <= alpha))
+            {
+                cutoffs++;
+                addKiller(ply, currMove);
+
+                if (splitPoint != null)
+                {
+                    splitPoint.cancel(n + 1, this);
+                }
+
+                break;
+            }
+        }
+
+        if (table != null)
+        {
+            int bound = TranspositionTable.EXACT;
+
+            if (bestScore >= beta)
+            {
+                bound = TranspositionTable.LOWER;
+            }
+            else if (bestScore <= alpha)
+            {
+                bound = TranspositionTable.UPPER;
+            }
+
+            table.store(key, levelsLeft, bestScore, bound, bestPacked);
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Scores a position beyond maxLevels once its captures are resolved.  A
+     * quiet position (the side to move has no capture) is scored with
+     * getBoardScore().  Otherwise the side to move has to capture, so every
+     * capture is searched the same way and the best score is returned;
+     * there is no option to stand pat as in chess.  Captures are few, since
+     * only jumps are legal when a jump is possible, and each one takes a
+     * piece off, so the sequence is short.
+     *
+     * <p> The positions visited are counted in nodes, and the results are
+     * not stored in the transposition table.
+     *
+     * @param player player whose turn it is
+     * @param ply index of the moves and undo record for this position
+     * @param alpha lowest score the computer is already guaranteed
+     * @param beta highest score the player is already guaranteed
+     * @return best score for the player whose turn it is
+     */
+    private double searchCaptures(int player, int ply, double alpha, double beta)
+    {
+        if (!board.canJump(player) || ply >= undoRecords.length)
+        {
+            return board.getBoardScore();
+        }
+
+        int base = ply * MAX_MOVES;
+        MoveUndo undo = undoRecords[ply];
+        int nextPlayer = (player == GameBoard.ENEMY) ? GameBoard.PLAYER : GameBoard.ENEMY;
+        int moveCount = board.getLegalTurns(player, moveStack, captureStack, base);
+        boolean maximizing = (player == GameBoard.ENEMY);
+        double bestScore = maximizing ? -200 : 200;
+
+        for (int i = 0; i < moveCount; i++)
+        {
+            int currMove = moveStack[base + i];
+
+            nodes++;
+            board.makeMove(currMove, captureStack[base + i], undo);
+            double currScore = searchCaptures(nextPlayer, ply + 1,
+                    childAlpha(maximizing, alpha, bestScore, false),
+                    childBeta(maximizing, beta, bestScore, false));
+            board.unmakeMove(currMove, undo);
+
+            if (maximizing ? currScore > bestScore : currScore < bestScore)
+            {
+                bestScore = currScore;
+            }
+
+            if (alphaBeta && (maximizing ? bestScore >= beta : bestScore <= alpha))
+            {
+                cutoffs++;
+                break;
+            }
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Chooses the root move from the tablebase, if it covers the root
+     * position and every position after a root move.  A win is played by
+     * the move that captures or crowns soonest, a loss by the move that
+     * puts it off longest, and a draw is preferred to a loss.  Ties go to
+     * the move generated first.
+     *
+     * @param player player whose turn it is
+     * @return the move and its score, or null if the position has to be searched
+     */
+    private AIMoveTest searchTablebase(int player)
+    {
+        int value = probeTablebase(player);
+
+        if (value == Tablebase.UNKNOWN)
+        {
+            return null;
+        }
+
+        int nextPlayer = (player == GameBoard.ENEMY) ? GameBoard.PLAYER : GameBoard.ENEMY;
+        int moveCount = board.getLegalTurns(player, moveStack, captureStack, 0);
+        AIMoveTest bestScore = new AIMoveTest(player == GameBoard.ENEMY);
+        MoveUndo undo = undoRecords[0];
+        int bestRank = Integer.MIN_VALUE;
+
+        for (int i = 0; i < moveCount; i++)
+        {
+            int move = moveStack[i];
+            int captured = captureStack[i];
+
+            board.makeMove(move, captured, undo);
+            int reply = tablebase.probe(board, nextPlayer);
+            board.unmakeMove(move, undo);
+
+            if (reply == Tablebase.UNKNOWN)
+            {
+                return null;
+            }
+
+            // distance of the result for the mover: a capture or crowning ends it
+            int distance = (captured != 0 || PackedMove.promotes(move))
+                    ? 1 : Tablebase.distance(reply) + 1;
+            int rank = 0;
+
+            if (Tablebase.isLoss(reply))
+            {
+                rank = 1000 - distance;
+            }
+            else if (Tablebase.isWin(reply))
+            {
+                rank = distance - 1000;
+            }
+
+            if (rank > bestRank)
+            {
+                bestRank = rank;
+                board.unpackMove(move, captured, bestScore.move);
+            }
+        }
+
+        if (moveCount > 0)
+        {
+            bestScore.score = tablebaseScore(value, player);
+        }
+
+        tablebaseHits++;
+        return bestScore;
+    }
+
+    /**
+     * Looks the current position up in the tablebase.  Positions where a
+     * side has no pieces left are left to the search, which already scores
+     * them as wins.
+     *
+     * @param player player whose turn it is
+     * @return tablebase value for the player, or Tablebase.UNKNOWN
+     */
+    private int probeTablebase(int player)
+    {
+        if (tablebase == null)
+        {
+            return Tablebase.UNKNOWN;
+        }
+
+        int playerPieces = board.getPieces(GameBoard.PLAYER);
+        int enemyPieces = board.getPieces(GameBoard.ENEMY);
+
+        if (playerPieces == 0 || enemyPieces == 0
+                || Integer.bitCount(playerPieces | enemyPieces) > tablebase.getMaxPieces())
+        {
+            return Tablebase.UNKNOWN;
+        }
+
+        return tablebase.probe(board, player);
+    }
+
+    /**
+     * Turns a tablebase value into a score for the computer.
+     *
+     * @param value tablebase value for the player to move
+     * @param player player whose turn it is
+     * @return score between -TABLEBASE_WIN and TABLEBASE_WIN, or the
+     *         evaluator's draw score
+     */
+    private double tablebaseScore(int value, int player)
+    {
+        double score;
+
+        if (Tablebase.isWin(value))
+        {
+            score = TABLEBASE_WIN - 0.01 * Tablebase.distance(value);
+        }
+        else if (Tablebase.isLoss(value))
+        {
+            score = 0.01 * Tablebase.distance(value) - TABLEBASE_WIN;
+        }
+        else
+        {
+            return board.getEvaluator().drawScore();
+        }
+
+        return (player == GameBoard.ENEMY) ? score : -score;
+    }
+
+    /**
+     * Returns the alpha to search a move with.  The computer only needs to
+     * know whether the move beats its best score so far; a move that comes
+     * before the best move also has to be told apart when it ties.
+     *
+     * @param maximizing true if it is the computer's turn
+     * @param alpha alpha of the current position
+     * @param bestScore best score found so far in the current position
+     * @param beforeBest true if the move was generated before the best move so far
+     * @return alpha for the move's search
+     */
+    private double childAlpha(boolean maximizing, double alpha, double bestScore,
+                              boolean beforeBest)
+    {
+        if (!alphaBeta || !maximizing)
+        {
+            return alpha;
+        }
+
+        return Math.max(alpha, beforeBest ? Math.nextDown(bestScore) : bestScore);
+    }
+
+    /**
+     * Returns the beta to search a move with; the player's side of
+     * childAlpha().
+     *
+     * @param maximizing true if it is the computer's turn
+     * @param beta beta of the current position
+     * @param bestScore best score found so far in the current position
+     * @param beforeBest true if the move was generated before the best move so far
+     * @return beta for the move's search
+     */
+    private double childBeta(boolean maximizing, double beta, double bestScore,
+                             boolean beforeBest)
+    {
+        if (!alphaBeta || maximizing)
+        {
+            return beta;
+        }
+
+        return Math.min(beta, beforeBest ? Math.nextUp(bestScore) : bestScore);
+    }
+
+    /**
+     * Returns an idle helper search for a task to run on, creating one if
+     * none is free.  The helper is given the current search's settings.
+     *
+     * @param taskBoard board the helper will search
+     * @param taskSplit split point the helper's task belongs to
+     * @return helper search, to be given back with releaseHelper()
+     */
+    private AISearch takeHelper(GameBoard taskBoard, SplitPoint taskSplit)
+    {
+        AISearch helper = helpers.poll();
+
+        if (helper == null)
+        {
+            helper = new AISearch(taskBoard, table);
+            helper.pool = pool;
+            helper.splitLevels = splitLevels;
+            helper.helpers = helpers;
+        }
+
+        helper.tablebase = tablebase;
+        helper.quiescence = quiescence;
+        helper.root = root;
+        helper.board = taskBoard;
+        helper.split = taskSplit;
+        helper.maxLevels = maxLevels;
+        helper.alphaBeta = alphaBeta;
+        helper.deadline = deadline;
+        helper.levelsCompleted = levelsCompleted;
+        helper.rootFirstMove = TranspositionTable.NO_MOVE;
+        helper.aborted = false;
+        helper.nodes = 0;
+        helper.cutoffs = 0;
+        helper.tablebaseHits = 0;
+
+        return helper;
+    }
+
+    /**
+     * Gives a helper search back once its task is done.
+     *
+     * @param helper helper returned by takeHelper()
+     */
+    private void releaseHelper(AISearch helper)
+    {
+        helper.board = null;
+        helper.split = null;
+        helpers.offer(helper);
+    }
+
+    /**
+     * Sorts the legal moves at a level so the moves most likely to cause a
+     * cutoff are tried first: the best move stored in the transposition
+     * table, jumps that capture a king, other jumps, moves that crown a
+     * piece, and then the killer moves for this level.  Moves with equal
+     * keys keep their generated order.
+     *
+     * @param base index in moveStack of the level's first move
+     * @param moveCount number of moves at the level
+     * @param ply index of the killer moves and order keys for this level
+     * @param tableMove best move from the transposition table, or NO_MOVE
+     */
+    private void orderMoves(int base, int moveCount, int ply, int tableMove)
+    {
+        int[] keys = orderKeys[ply];
+        int[] levelKillers = killers[ply];
+
+        for (int i = 0; i < moveCount; i++)
+        {
+            int move = moveStack[base + i];
+            int packed = move & PackedMove.SQUARES;
+            int key = (packed == tableMove) ? 1000 : 0;
+
+            if (PackedMove.isJump(move))
+            {
+                key += board.capturesKing(captureStack[base + i]) ? 200 : 100;
+            }
+
+            if (PackedMove.promotes(move))
+            {
+                key += 50;
+            }
+
+            for (int k = 0; k < KILLERS; k++)
+            {
+                if (levelKillers[k] == packed)
+                {
+                    key += 20 - k;
+                    break;
+                }
+            }
+
+            // the low bits only reorder moves that have the same key
+            if (orderVariation != 0)
+            {
+                key = (key << 3) | (((packed + orderVariation) * 0x9E3779B1) >>> 29);
+            }
+
+            keys[i] = key;
+        }
+
+        // insertion sort, stable and quick for the short lists found in checkers
+        for (int i = 1; i < moveCount; i++)
+        {
+            int move = moveStack[base + i];
+            int captured = captureStack[base + i];
+            int key = keys[i];
+            int j = i - 1;
+
+            while (j >= 0 && keys[j] < key)
+            {
+                moveStack[base + j + 1] = moveStack[base + j];
+                captureStack[base + j + 1] = captureStack[base + j];
+                keys[j + 1] = keys[j];
+                j--;
+            }
+
+            moveStack[base + j + 1] = move;
+            captureStack[base + j + 1] = captured;
+            keys[j + 1] = key;
+        }
+    }
+
+    /**
+     * Remembers a move that caused a cutoff at the given level, so it can
+     * be tried early the next time a position at this level is searched.
+     *
+     * @param ply level the cutoff happened at
+     * @param move packed move that caused the cutoff
+     */
+    private void addKiller(int ply, int move)
+    {
+        int[] levelKillers = killers[ply];
+        int packed = move & PackedMove.SQUARES;
+
+        if (levelKillers[0] != packed)
+        {
+            System.arraycopy(levelKillers, 0, levelKillers, 1, KILLERS - 1);
+            levelKillers[0] = packed;
+        }
+    }
+
+    /**
+     * Returns a one line summary of the work done by the last search, such
+     * as "levels: 6, nodes: 1234, cutoffs: 56", followed by the transposition table
+     * counters if a table is in use.
+     *
+     * @return summary of the last search's statistics
+     */
+    public String getSummary()
+    {
+        String summary = "levels: " + levelsCompleted + ", nodes: " + nodes
+                + ", cutoffs: " + cutoffs;
+
+        if (tablebase != null)
+        {
+            summary += ", tablebase hits: " + tablebaseHits;
+        }
+
+        if (table != null)
+        {
+            summary += ", " + table.getSummary();
+        }
+
+        return summary;
+    }
+
+    /**
+     * The moves of one position that are being searched in parallel.  A
+     * split point is cancelled when one of its moves causes a cutoff (or the
+     * search is aborted), and the tasks searching its other moves then stop
+     * at their next check.  Cancelling a split point also cancels every split
+     * point below it.
+     */
+    private static final class SplitPoint
+    {
+        /**
+         * Split point of the position above this one, or null
+         */
+        private final SplitPoint parent;
+
+        /**
+         * Task searching each move, in visiting order.  Index 0 (the eldest
+         * brother, searched before splitting) is unused.
+         */
+        private final SearchTask[] tasks;
+
+        /**
+         * Set once the remaining moves are no longer needed
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * Constructor.
+         *
+         * @param parentSplit split point of the position above, or null
+         * @param moveCount number of moves in the position
+         */
+        SplitPoint(SplitPoint parentSplit, int moveCount)
+        {
+            parent = parentSplit;
+            tasks = new SearchTask[moveCount];
+        }
+
+        /**
+         * Returns whether this split point or any above it has been cancelled.
+         *
+         * @return true if the tasks of this split point should stop
+         */
+        boolean isCancelled()
+        {
+            for (SplitPoint point = this; point != null; point = point.parent)
+            {
+                if (point.cancelled)
+                {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Cancels the tasks from the given visiting order on, and waits for
+         * them to stop so that none is still using its helper afterwards.
+         * Their counts are still added to the search's statistics.
+         *
+         * @param from visiting order of the first task to cancel
+         * @param search search that forked the tasks
+         */
+        void cancel(int from, AISearch search)
+        {
+            cancelled = true;
+
+            for (int n = Math.max(1, from); n < tasks.length; n++)
+            {
+                tasks[n].join();
+                search.nodes += tasks[n].nodes;
+                search.cutoffs += tasks[n].cutoffs;
+                search.tablebaseHits += tasks[n].tablebaseHits;
+            }
+        }
+    }
+
+    /**
+     * Searches one move of a split point on a helper search, with its own
+     * copy of the board.
+     */
+    private static final class SearchTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final AISearch parent;
+        private final SplitPoint splitPoint;
+        private final GameBoard taskBoard;
+        private final int move;
+        private final int captured;
+        private final int levelsDeep;
+        private final int player;
+        private final int ply;
+        private final double alpha;
+        private final double beta;
+
+        /**
+         * Score of the position after the move, valid once the task is done
+         * if it was not aborted
+         */
+        double score;
+
+        /**
+         * Positions visited, cutoffs made and tablebase positions scored by
+         * the task
+         */
+        long nodes;
+        long cutoffs;
+        long tablebaseHits;
+
+        /**
+         * True if the task stopped before finishing
+         */
+        boolean aborted;
+
+        /**
+         * Constructor.  Copies the forking search's board, since it is
+         * reused by the forking search once the task is done.
+         *
+         * @param search search forking the task
+         * @param point split point the task belongs to
+         * @param taskMove packed move to search
+         * @param taskCaptured squares captured by the move
+         * @param taskLevelsDeep recursion depth of the position after the move
+         * @param taskPlayer player to move after the move
+         * @param taskPly ply of the position after the move
+         * @param taskAlpha alpha to search the move with
+         * @param taskBeta beta to search the move with
+         */
+        SearchTask(AISearch search, SplitPoint point, int taskMove,
+                   int taskCaptured, int taskLevelsDeep, int taskPlayer,
+                   int taskPly, double taskAlpha, double taskBeta)
+        {
+            parent = search;
+            splitPoint = point;
+            taskBoard = new GameBoard(search.board);
+            move = taskMove;
+            captured = taskCaptured;
+            levelsDeep = taskLevelsDeep;
+            player = taskPlayer;
+            ply = taskPly;
+            alpha = taskAlpha;
+            beta = taskBeta;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (splitPoint.isCancelled())
+            {
+                aborted = true;
+                return;
+            }
+
+            AISearch helper = parent.takeHelper(taskBoard, splitPoint);
+
+            try
+            {
+                taskBoard.makeMove(move, captured, null);
+                score = helper.searchLevel(levelsDeep, player, ply, alpha, beta, null);
+                aborted = helper.aborted;
+                nodes = helper.nodes;
+                cutoffs = helper.cutoffs;
+                tablebaseHits = helper.tablebaseHits;
+            }
+            finally
+            {
+                parent.releaseHelper(helper);
+            }
+        }
+    }
+}
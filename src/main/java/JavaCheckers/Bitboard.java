@@ -0,0 +1,236 @@
+package JavaCheckers;
+
+/**
+ * Bitboard holds the square numbering and shift helpers used by GameBoard
+ * to store the position as 32-bit masks.  Only the 32 dark (playable)
+ * squares of the 8x8 board are represented, one bit per square, numbered
+ * row by row from the top left:
+ *
+ * <pre>
+ *   row 0:   0   1   2   3      (cols 0, 2, 4, 6)
+ *   row 1:   4   5   6   7      (cols 1, 3, 5, 7)
+ *   row 2:   8   9  10  11      (cols 0, 2, 4, 6)
+ *   ...
+ *   row 7:  28  29  30  31      (cols 1, 3, 5, 7)
+ * </pre>
+ *
+ * <p> Because the numbering follows the same row-major order as the old
+ * board[][] scans, walking the set bits of a mask from lowest to highest
+ * visits the pieces in the same order the original move generator did.
+ *
+ * <p> For moving one piece at a time there are also tables, built once,
+ * of each square's diagonal neighbors, jump landing squares and jumped
+ * squares, indexed by direction and square.  Men use the two directions
+ * towards the opponent (UP_LEFT and UP_RIGHT for PLAYER, DOWN_LEFT and
+ * DOWN_RIGHT for ENEMY) and kings all four, so the directions are numbered
+ * to make each of those a range.
+ *
+ * @author Jason Hamilton
+ */
+class Bitboard
+{
+    /**
+     * Squares on rows 0, 2, 4 and 6 (dark squares are on the even columns)
+     */
+    static final int EVEN_ROWS = 0x0F0F0F0F;
+
+    /**
+     * Squares on rows 1, 3, 5 and 7 (dark squares are on the odd columns)
+     */
+    static final int ODD_ROWS = 0xF0F0F0F0;
+
+    /**
+     * Squares in column 0 (the left edge of the board)
+     */
+    static final int LEFT_EDGE = 0x01010101;
+
+    /**
+     * Squares in column 7 (the right edge of the board)
+     */
+    static final int RIGHT_EDGE = 0x80808080;
+
+    /**
+     * Row 0, where PLAYER men are crowned
+     */
+    static final int PLAYER_KING_ROW = 0x0000000F;
+
+    /**
+     * Row 7, where ENEMY men are crowned
+     */
+    static final int ENEMY_KING_ROW = 0xF0000000;
+
+    /**
+     * Directions, in the order moves are generated in (row - 1, col - 1),
+     * (row - 1, col + 1), (row + 1, col - 1) and (row + 1, col + 1)
+     */
+    static final int UP_LEFT = 0;
+    static final int UP_RIGHT = 1;
+    static final int DOWN_LEFT = 2;
+    static final int DOWN_RIGHT = 3;
+
+    /**
+     * Square next to each square in each direction, as NEIGHBOR[direction][square],
+     * or -1 off the board
+     */
+    static final int[][] NEIGHBOR = new int[4][32];
+
+    /**
+     * Square a jump from each square in each direction lands on, as
+     * JUMP_LANDING[direction][square], or -1 off the board
+     */
+    static final int[][] JUMP_LANDING = new int[4][32];
+
+    /**
+     * Mask of the square a jump from each square in each direction jumps
+     * over, as JUMPED[direction][square].  It is 0 when the jump would land
+     * off the board, so testing it against the opponent's pieces also rules
+     * out the board edges.
+     */
+    static final int[][] JUMPED = new int[4][32];
+
+    static
+    {
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++)
+        {
+            int rowStep = (direction < DOWN_LEFT) ? -1 : 1;
+            int colStep = ((direction & 1) == 0) ? -1 : 1;
+
+            for (int square = 0; square < 32; square++)
+            {
+                int row = row(square);
+                int col = col(square);
+                boolean hasNeighbor = isPlayable(row + rowStep, col + colStep);
+                boolean hasLanding = isPlayable(row + 2 * rowStep, col + 2 * colStep);
+
+                NEIGHBOR[direction][square] = hasNeighbor
+                        ? square(row + rowStep, col + colStep) : -1;
+                JUMP_LANDING[direction][square] = hasLanding
+                        ? square(row + 2 * rowStep, col + 2 * colStep) : -1;
+                JUMPED[direction][square] = hasLanding
+                        ? 1 << square(row + rowStep, col + colStep) : 0;
+            }
+        }
+    }
+
+    /**
+     * Not meant to be instantiated; all members are static.
+     */
+    private Bitboard()
+    {
+    }
+
+    /**
+     * Returns whether the given row/col is one of the 32 playable squares.
+     *
+     * @param row board row (0-7)
+     * @param col board col (0-7)
+     * @return true if the square is dark (playable), false if not
+     */
+    static boolean isPlayable(int row, int col)
+    {
+        return row >= 0 && row < 8 && col >= 0 && col < 8 && ((row + col) & 1) == 0;
+    }
+
+    /**
+     * Converts a playable row/col to its square number (0-31).
+     *
+     * @param row board row (0-7)
+     * @param col board col (0-7), must be a playable square on that row
+     * @return square number of the row/col
+     */
+    static int square(int row, int col)
+    {
+        return (row << 2) | (col >> 1);
+    }
+
+    /**
+     * Returns the row of a square number.
+     *
+     * @param square square number (0-31)
+     * @return board row (0-7)
+     */
+    static int row(int square)
+    {
+        return square >> 2;
+    }
+
+    /**
+     * Returns the col of a square number.
+     *
+     * @param square square number (0-31)
+     * @return board col (0-7)
+     */
+    static int col(int square)
+    {
+        return ((square & 3) << 1) | ((square >> 2) & 1);
+    }
+
+    /**
+     * Moves every square in the mask one step up and to the left
+     * (row - 1, col - 1).  Squares that would leave the board are dropped.
+     *
+     * @param b mask of squares to shift
+     * @return mask of the shifted squares
+     */
+    static int shiftNW(int b)
+    {
+        return ((b & EVEN_ROWS & ~LEFT_EDGE) >>> 5) | ((b & ODD_ROWS) >>> 4);
+    }
+
+    /**
+     * Moves every square in the mask one step up and to the right
+     * (row - 1, col + 1).  Squares that would leave the board are dropped.
+     *
+     * @param b mask of squares to shift
+     * @return mask of the shifted squares
+     */
+    static int shiftNE(int b)
+    {
+        return ((b & EVEN_ROWS) >>> 4) | ((b & ODD_ROWS & ~RIGHT_EDGE) >>> 3);
+    }
+
+    /**
+     * Moves every square in the mask one step down and to the left
+     * (row + 1, col - 1).  Squares that would leave the board are dropped.
+     *
+     * @param b mask of squares to shift
+     * @return mask of the shifted squares
+     */
+    static int shiftSW(int b)
+    {
+        return ((b & EVEN_ROWS & ~LEFT_EDGE) << 3) | ((b & ODD_ROWS) << 4);
+    }
+
+    /**
+     * Moves every square in the mask one step down and to the right
+     * (row + 1, col + 1).  Squares that would leave the board are dropped.
+     *
+     * @param b mask of squares to shift
+     * @return mask of the shifted squares
+     */
+    static int shiftSE(int b)
+    {
+        return ((b & EVEN_ROWS) << 4) | ((b & ODD_ROWS & ~RIGHT_EDGE) << 5);
+    }
+
+    /**
+     * Returns the square jumped over by a single jump, or -1 if the move
+     * between the two squares is not a jump.
+     *
+     * @param from square the piece jumps from
+     * @param to square the piece lands on
+     * @return square of the jumped piece, or -1
+     */
+    static int jumpedSquare(int from, int to)
+    {
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++)
+        {
+            if (JUMP_LANDING[direction][from] == to)
+            {
+                return Integer.numberOfTrailingZeros(JUMPED[direction][from]);
+            }
+        }
+
+        return -1;
+    }
+}
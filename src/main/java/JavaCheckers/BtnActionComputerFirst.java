@@ -25,17 +25,15 @@ public class BtnActionComputerFirst implements ActionListener {
 
     /**
      * Main action handler that processes the button event. Skips the waiting
-     * for the user's first move, preforms the Computer's move, and then
-     * returns to waiting for the player.
+     * for the user's first move and starts the Computer's move, which
+     * returns to waiting for the player once it is made.
      *
      * @param evt the event to be processed
      */
     public void actionPerformed(ActionEvent evt)
     {
+        game.btnComputerFirst.setVisible(false);
         game.changeStatus("Computer moving first. Please wait . . .");
         game.doEnemyMove();
-        game.btnComputerFirst.setVisible(false);
-        game.rootPanel.paintImmediately(0, 0, 600, 600);
-        game.changeStatus("Select a piece to move.");
     }
 }
@@ -5,10 +5,10 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 /**
- * "New Game" button action.  Asks for the player's name if it's the first
- * time, and for the difficulty level of the AI.  Resets all pieces
- * to their starting positions. Also calls setGameSpeed to determine how
- * fast the computer is and adjust gameSpeed accordingly.
+ * "New Game" button action.  Stops the computer if it is thinking about a
+ * move, and any move being animated.  Asks for the player's name if it's
+ * the first time, and for the difficulty level of the AI.  Resets all
+ * pieces to their starting positions.
  */
 public class BtnActionNewGame implements ActionListener {
     /**
@@ -33,6 +33,9 @@ public class BtnActionNewGame implements ActionListener {
      */
     public void actionPerformed(ActionEvent evt)
     {
+        // abandon the computer's move, not waiting for its search to finish
+        game.cancelEnemyMove();
+        game.middlePanel.stopAnimation();
 
         if (game.playerName == null)
         {
@@ -49,17 +52,31 @@ public class BtnActionNewGame implements ActionListener {
         }
 
         game.changeStatus("Waiting for user to select difficulty...");
-        game.currGame.newGame();
+        Object[] levelOptions = {"Easy", "Medium", "Hard"};
+        int level = JOptionPane.showOptionDialog(
+            null,
+            "Select a difficulty level:",
+            "New Game",
+            JOptionPane.YES_NO_CANCEL_OPTION,
+            JOptionPane.QUESTION_MESSAGE,
+            null,
+            levelOptions,
+            levelOptions[2]
+        );
+
+        // -1 (the user clicked the "X") selects the default difficulty
+        game.engine.setDifficulty(level);
+        game.engine.newGame();
 
         game.changeStatus("Creating new game. Please wait . . .");
-        game.rootPanel.paintImmediately(0, 0, 600, 600);
         game.gameInProgress = true;
-        game.legalMoves = game.currGame.getLegalMoves(GameBoard.PLAYER);
+        game.waitingForInput = true;     // the user moves first
+        game.legalMoves = game.engine.getLegalMoves(GameBoard.PLAYER);
         game.selectedRow = -1;    // indicate that no piece is selected yet
         game.middlePanel.getPiecePositions();
-        game.rootPanel.paintImmediately(0, 0, 600, 600);
-        game.middlePanel.setGameSpeed();
+        game.rootPanel.repaint();    // the names and all the pieces appear
         game.btnComputerFirst.setVisible(true);
+        game.startPondering();
         game.changeStatus("Select a piece to move   OR   'Let Computer Move First'");
     }
 }
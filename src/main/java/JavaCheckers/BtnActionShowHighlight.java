@@ -24,8 +24,8 @@ public class BtnActionShowHighlight implements ActionListener {
 
     /**
      * Main action handler that processes the button event. Changes
-     * the button text to match the new state and updates
-     * the game root panel.
+     * the button text to match the new state and repaints
+     * the outlined squares of the game board.
      *
      * @param evt the event to be processed
      */
@@ -39,6 +39,6 @@ public class BtnActionShowHighlight implements ActionListener {
             game.btnShowHighlight.setText("Highlight Moves OFF");
         }
 
-        game.rootPanel.paintImmediately(0, 0, 600, 600);
+        game.middlePanel.repaintOutlines();
     }
 }
@@ -50,7 +50,6 @@ public class BtnActionShowRules implements ActionListener {
         tp.setEditable(false);
 
         jf.setVisible(true);
-        game.rootPanel.paintImmediately(0, 0, 600, 600);
     }
 
     /**
@@ -0,0 +1,838 @@
+package JavaCheckers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * CheckersEngine is the checkers game logic and AI without any user
+ * interface.  It holds a GameBoard, the AI's transposition table and its
+ * search threads, and gives access to them through one set of methods:
+ * setting up a position, listing legal moves, making moves, and searching
+ * for the computer's move with a given depth and time limit.
+ *
+ * <p> CheckersGame uses it as the backend for the Swing game, and since it
+ * needs no display it can also be used to run the AI on its own, for
+ * example in batch jobs, benchmarks and tests.
+ *
+ * <p> search() runs on the calling thread.  searchAsync() runs the search
+ * on the engine's own search thread instead, on a copy of the position, so
+ * a user interface stays responsive and may go on using the engine (for
+ * example to start a new game) while the search is running.
+ *
+ * <p> startPondering() uses the opponent's thinking time: each of the
+ * opponent's replies is searched in the background, the most likely
+ * first, and the results are kept until the engine's next search.  If
+ * the opponent plays one of the replies already searched, that search
+ * returns the pondered move at once; otherwise it still finds much of its
+ * work in the transposition table.
+ *
+ * <p> Positions can be given as text, one character for each of the 32
+ * playable squares in Bitboard order (row 0 first, left to right):
+ *
+ * <pre>
+ * .  empty square
+ * p  PLAYER man        P  PLAYER king
+ * e  ENEMY man         E  ENEMY king
+ * </pre>
+ *
+ * @author Jason Hamilton
+ */
+public class CheckersEngine
+{
+    /**
+     * Default size in megabytes of the transposition table
+     */
+    public static final int DEFAULT_TABLE_SIZE_MB = 32;
+
+    /**
+     * Number of plies from the root at which a multi-threaded search splits
+     * its moves between threads (see AISearch.setParallel)
+     */
+    static final int SPLIT_LEVELS = 2;
+
+    /**
+     * Characters used for each game piece type in position text, indexed by
+     * the GameBoard piece constants
+     */
+    private static final String PIECE_CHARS = ".pPeE";
+
+    /**
+     * Board holding the current position
+     */
+    private final GameBoard board;
+
+    /**
+     * Positions already searched, kept between searches so each search can
+     * reuse the work of the ones before it
+     */
+    private final TranspositionTable table;
+
+    /**
+     * Number of threads to search with
+     */
+    private int threads = 1;
+
+    /**
+     * True to search with Lazy SMP, false to split the search's moves
+     * between threads
+     */
+    private boolean lazySMP;
+
+    /**
+     * Threads for the split search, created when first needed
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Thread that runs searchAsync() searches, created when first needed
+     */
+    private ExecutorService searchThread;
+
+    /**
+     * Endgame tablebase the searches probe, or null
+     */
+    private Tablebase tablebase;
+
+    /**
+     * True to resolve pending captures at the leaves of the search
+     */
+    private boolean quiescence = true;
+
+    /**
+     * Book of opening moves played without searching, or null
+     */
+    private OpeningBook openingBook;
+
+    /**
+     * Statistics of the last search
+     */
+    private volatile String searchSummary = "";
+
+    /**
+     * Positions visited by the last search, on all its threads
+     */
+    private volatile long searchNodes;
+
+    /**
+     * Cost of the last search, or null if none was run
+     */
+    private volatile SearchStats searchStats;
+
+    /**
+     * Pondering in progress, or null
+     */
+    private volatile SearchFuture ponder;
+
+    /**
+     * Moves found by pondering, indexed by the hash of the position searched
+     * (see GameBoard.getHash()), and the settings they were searched with
+     */
+    private final Map<Long, PonderedMove> ponderedMoves = new ConcurrentHashMap<>();
+    private int ponderPlayer;
+    private int ponderLevels;
+    private long ponderTime;
+
+    /**
+     * Listeners told about every search
+     */
+    private final List<SearchListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor.  Creates an engine with the starting position, the
+     * default difficulty and a table of the default size.
+     */
+    public CheckersEngine()
+    {
+        this(DEFAULT_TABLE_SIZE_MB);
+    }
+
+    /**
+     * Constructor.  Creates an engine with the starting position, the
+     * default difficulty and a table of the given size.
+     *
+     * @param tableSizeMB size of the transposition table in megabytes
+     */
+    public CheckersEngine(int tableSizeMB)
+    {
+        board = new GameBoard();
+        board.setDifficulty(-1);
+        board.newGame();
+        table = new TranspositionTable(tableSizeMB);
+    }
+
+    /**
+     * Returns the board holding the engine's position.  Changes made to it
+     * directly are seen by the engine.
+     *
+     * @return the engine's board
+     */
+    public GameBoard getBoard()
+    {
+        return board;
+    }
+
+    /**
+     * Resets all pieces to their starting positions.  The difficulty level,
+     * thread settings and table contents are kept.
+     */
+    public void newGame()
+    {
+        forgetPondering();
+        board.newGame();
+    }
+
+    /**
+     * Sets the AI difficulty level (see GameBoard.setDifficulty()).
+     *
+     * @param level 0 for easy, 1 for medium, 2 for hard, or -1 for the default
+     */
+    public void setDifficulty(int level)
+    {
+        board.setDifficulty(level);
+    }
+
+    /**
+     * Returns how many levels deep the AI searches at the current
+     * difficulty, as in GameBoard.maxLevels.
+     *
+     * @return number of levels searched by default
+     */
+    public int getMaxLevels()
+    {
+        return board.maxLevels;
+    }
+
+    /**
+     * Sets the Evaluator the AI scores positions with (see
+     * GameBoard.setEvaluator()).  The transposition table is cleared, since
+     * the scores stored in it came from the previous evaluator.
+     *
+     * @param evaluator evaluator to use, or null for the default
+     */
+    public void setEvaluator(Evaluator evaluator)
+    {
+        forgetPondering();
+        board.setEvaluator(evaluator);
+        table.clear();
+    }
+
+    /**
+     * Makes the AI look endgame positions up in a tablebase instead of
+     * searching them (see AISearch.setTablebase()).
+     *
+     * @param endgames tablebase to probe, or null to search every position
+     */
+    public void setTablebase(Tablebase endgames)
+    {
+        tablebase = endgames;
+    }
+
+    /**
+     * Sets whether the AI resolves pending captures before scoring the
+     * positions at the end of its search (see AISearch.setQuiescence()).
+     * It is on by default.  The transposition table is cleared, since the
+     * scores stored in it were found with the other setting.
+     *
+     * @param enabled true to search captures at the leaves
+     */
+    public void setQuiescence(boolean enabled)
+    {
+        if (enabled != quiescence)
+        {
+            forgetPondering();
+            quiescence = enabled;
+            table.clear();
+        }
+    }
+
+    /**
+     * Makes the AI play moves from an opening book, without searching, in
+     * the positions the book covers.
+     *
+     * @param book opening book, or null to always search
+     */
+    public void setOpeningBook(OpeningBook book)
+    {
+        openingBook = book;
+    }
+
+    /**
+     * Sets how many threads the AI searches with.  With more than one
+     * thread, the moves near the root are split between the threads of a
+     * ForkJoinPool (which finds the same move as one thread), or each
+     * thread searches the whole tree with Lazy SMP (see LazySMPSearch).
+     *
+     * @param threadCount number of threads, at least 1
+     * @param useLazySMP true for Lazy SMP, false to split the moves
+     */
+    public synchronized void setThreads(int threadCount, boolean useLazySMP)
+    {
+        threadCount = Math.max(1, threadCount);
+
+        if (pool != null && pool.getParallelism() != threadCount)
+        {
+            pool.shutdown();
+            pool = null;
+        }
+
+        threads = threadCount;
+        lazySMP = useLazySMP;
+    }
+
+    /**
+     * Adds a listener to be told the cost of every search made from now on
+     * (see SearchListener).
+     *
+     * @param listener listener to add
+     */
+    public void addSearchListener(SearchListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with addSearchListener().
+     *
+     * @param listener listener to remove
+     */
+    public void removeSearchListener(SearchListener listener)
+    {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sets up a position from text (see the class description).
+     *
+     * @param position 32 characters, one for each playable square
+     * @throws IllegalArgumentException if the text is not a valid position
+     */
+    public void setPosition(String position)
+    {
+        if (position.length() != 32)
+        {
+            throw new IllegalArgumentException("position must have 32 squares: " + position);
+        }
+
+        int player = 0;
+        int enemy = 0;
+        int kings = 0;
+
+        for (int square = 0; square < 32; square++)
+        {
+            int piece = PIECE_CHARS.indexOf(position.charAt(square));
+
+            if (piece < 0)
+            {
+                throw new IllegalArgumentException("unknown piece '"
+                        + position.charAt(square) + "' in position: " + position);
+            }
+
+            int bit = 1 << square;
+
+            if (piece == GameBoard.PLAYER || piece == GameBoard.PLAYER_KING)
+            {
+                player |= bit;
+            }
+            else if (piece == GameBoard.ENEMY || piece == GameBoard.ENEMY_KING)
+            {
+                enemy |= bit;
+            }
+
+            if (piece == GameBoard.PLAYER_KING || piece == GameBoard.ENEMY_KING)
+            {
+                kings |= bit;
+            }
+        }
+
+        forgetPondering();
+        board.setPosition(player, enemy, kings);
+    }
+
+    /**
+     * Returns the current position as text (see the class description).
+     *
+     * @return 32 characters, one for each playable square
+     */
+    public String getPosition()
+    {
+        StringBuilder position = new StringBuilder(32);
+
+        for (int square = 0; square < 32; square++)
+        {
+            position.append(PIECE_CHARS.charAt(
+                    board.pieceAt(Bitboard.row(square), Bitboard.col(square))));
+        }
+
+        return position.toString();
+    }
+
+    /**
+     * Returns the piece on a square (see GameBoard.pieceAt()).
+     *
+     * @param row row of the game square to check
+     * @param col col of the game square to check
+     * @return one of the GameBoard piece constants
+     */
+    public int pieceAt(int row, int col)
+    {
+        return board.pieceAt(row, col);
+    }
+
+    /**
+     * Returns the legal single steps for a player, jumps only if any jump is
+     * possible.  A series jump is made one step at a time, continuing with
+     * getLegalJumpsFrom().
+     *
+     * @param player GameBoard.PLAYER or GameBoard.ENEMY
+     * @return array of legal moves, or null if there are none
+     */
+    public CheckersMove[] getLegalMoves(int player)
+    {
+        return board.getLegalMoves(player);
+    }
+
+    /**
+     * Returns the legal moves for a player as complete turns, with each
+     * series jump as a single move (see GameBoard.getLegalTurns()).
+     *
+     * @param player GameBoard.PLAYER or GameBoard.ENEMY
+     * @return array of legal turns, or null if there are none
+     */
+    public CheckersMove[] getLegalTurns(int player)
+    {
+        return board.getLegalTurns(player);
+    }
+
+    /**
+     * Returns the legal moves for the PLAYER piece on the given square (see
+     * GameBoard.getLegalMoves(int, int)).
+     *
+     * @param row row of the selected piece
+     * @param col col of the selected piece
+     * @return array of legal moves for the piece
+     */
+    public CheckersMove[] getLegalMoves(int row, int col)
+    {
+        return board.getLegalMoves(row, col);
+    }
+
+    /**
+     * Returns the jumps a piece can make, used to continue a series jump.
+     *
+     * @param player player the piece belongs to
+     * @param row row of the piece
+     * @param col col of the piece
+     * @return array of legal jumps, or null if there are none
+     */
+    public CheckersMove[] getLegalJumpsFrom(int player, int row, int col)
+    {
+        return board.getLegalJumpsFrom(player, row, col);
+    }
+
+    /**
+     * Makes a move, either a single step or a complete turn.  It is assumed
+     * that the move is legal.
+     *
+     * @param move row/col locations of piece to move and location to move to
+     */
+    public void makeMove(CheckersMove move)
+    {
+        board.makeMove(move);
+    }
+
+    /**
+     * Finds the best move for a player.  The move is a complete turn, so a
+     * series jump is returned with its whole path (see getLegalTurns()).
+     * If an opening book is set and has a move for the position, the book
+     * move is returned at once without searching.  Either way the cost of
+     * the search is passed to the SearchListeners before it returns.
+     *
+     * @param player GameBoard.PLAYER or GameBoard.ENEMY
+     * @param maxLevels deepest search to try, as in GameBoard.maxLevels
+     * @param timeLimit milliseconds allowed for the search, 0 for no limit
+     * @return best move and its score; hasMove() is false if there is no move
+     */
+    public AIMoveTest search(int player, int maxLevels, long timeLimit)
+    {
+        stopPondering();
+        return search(board, player, maxLevels, timeLimit, null, null, false);
+    }
+
+    /**
+     * Starts a search for the best move for a player on the engine's search
+     * thread, and returns at once.  The search works on a copy of the
+     * current position, so the engine's board may be changed while it runs.
+     * Searches started while another is running wait for it to finish.
+     *
+     * <p> The returned future completes on the search thread, with the same
+     * result search() would return.  Cancelling it stops the search; the
+     * SearchListeners are not told about a cancelled search.  Pondering is
+     * stopped first, and if it already searched this position with the same
+     * settings, the future completes with the pondered move without
+     * searching again.
+     *
+     * @param player GameBoard.PLAYER or GameBoard.ENEMY
+     * @param maxLevels deepest search to try, as in GameBoard.maxLevels
+     * @param timeLimit milliseconds allowed for the search, 0 for no limit
+     * @param progress told about each level the search finishes, or null
+     * @return future completing with the best move and its score
+     */
+    public SearchFuture searchAsync(int player, int maxLevels, long timeLimit,
+                                    SearchProgress progress)
+    {
+        stopPondering();
+        GameBoard searchBoard = new GameBoard(board);
+        SearchFuture future = new SearchFuture();
+
+        getSearchThread().execute(() ->
+        {
+            if (future.isCancelled())
+            {
+                return;
+            }
+
+            try
+            {
+                future.complete(search(searchBoard, player, maxLevels, timeLimit,
+                        progress, future, false));
+            }
+            catch (RuntimeException | Error e)
+            {
+                future.completeExceptionally(e);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Starts searching, in the background, the positions after each of the
+     * opponent's possible replies, as the engine's next search would.  The
+     * opponent's best move stored in the transposition table, which the
+     * last search expected the opponent to play, is searched first.
+     * Pondering runs on the search thread until every reply is searched or
+     * it is stopped; any search or change of position stops it.
+     *
+     * @param player player the engine will search for after the reply
+     * @param maxLevels deepest search to try, as in GameBoard.maxLevels
+     * @param timeLimit milliseconds allowed for each reply, 0 for no limit
+     */
+    public void startPondering(int player, int maxLevels, long timeLimit)
+    {
+        forgetPondering();
+        ponderPlayer = player;
+        ponderLevels = maxLevels;
+        ponderTime = timeLimit;
+
+        int opponent = (player == GameBoard.ENEMY) ? GameBoard.PLAYER : GameBoard.ENEMY;
+        int[] replies = new int[AISearch.MAX_MOVES];
+        int[] captures = new int[AISearch.MAX_MOVES];
+        int replyCount = board.getLegalTurns(opponent, replies, captures, 0);
+        TableEntry entry = new TableEntry();
+
+        // most likely reply first
+        if (table.probe(board.getHash(opponent), entry))
+        {
+            for (int i = 1; i < replyCount; i++)
+            {
+                if ((replies[i] & PackedMove.SQUARES) == entry.move)
+                {
+                    int reply = replies[i];
+                    int captured = captures[i];
+                    System.arraycopy(replies, 0, replies, 1, i);
+                    System.arraycopy(captures, 0, captures, 1, i);
+                    replies[0] = reply;
+                    captures[0] = captured;
+                    break;
+                }
+            }
+        }
+
+        GameBoard ponderBoard = new GameBoard(board);
+        SearchFuture future = new SearchFuture();
+        ponder = future;
+
+        getSearchThread().execute(() ->
+        {
+            MoveUndo undo = new MoveUndo();
+
+            try
+            {
+                for (int i = 0; i < replyCount && !future.isCancelled(); i++)
+                {
+                    ponderBoard.makeMove(replies[i], captures[i], undo);
+                    search(ponderBoard, player, maxLevels, timeLimit, null, future, true);
+                    ponderBoard.unmakeMove(replies[i], undo);
+                }
+
+                future.complete(null);
+            }
+            catch (RuntimeException | Error e)
+            {
+                future.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Stops pondering, keeping the moves it has found so far.
+     */
+    public void stopPondering()
+    {
+        SearchFuture pondering = ponder;
+
+        if (pondering != null)
+        {
+            pondering.cancel(true);
+            ponder = null;
+        }
+    }
+
+    /**
+     * Stops pondering and throws away the moves it found, when they no
+     * longer apply.
+     */
+    private void forgetPondering()
+    {
+        stopPondering();
+        ponderedMoves.clear();
+    }
+
+    /**
+     * Returns the thread searchAsync() runs its searches on, creating it if
+     * needed.  It is a daemon thread, so it does not keep the program
+     * running.
+     *
+     * @return single thread executor
+     */
+    private synchronized ExecutorService getSearchThread()
+    {
+        if (searchThread == null)
+        {
+            searchThread = Executors.newSingleThreadExecutor(task ->
+            {
+                Thread thread = new Thread(task, "CheckersEngine-search");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return searchThread;
+    }
+
+    /**
+     * Returns the threads for the split search, creating them if needed.
+     *
+     * @return pool with one thread per search thread
+     */
+    private synchronized ForkJoinPool getPool()
+    {
+        if (pool == null)
+        {
+            pool = new ForkJoinPool(threads);
+        }
+
+        return pool;
+    }
+
+    /**
+     * Finds the best move for a player on the given board (see search()).
+     *
+     * @param searchBoard board to search, the engine's or a copy of it
+     * @param player GameBoard.PLAYER or GameBoard.ENEMY
+     * @param maxLevels deepest search to try, as in GameBoard.maxLevels
+     * @param timeLimit milliseconds allowed for the search, 0 for no limit
+     * @param progress told about each level the search finishes, or null
+     * @param future future the search is run for, or null
+     * @param pondering true to keep the result for a later search instead
+     *                  of reporting it
+     * @return best move and its score, or null if the future was cancelled
+     *         before the first level was finished
+     */
+    private AIMoveTest search(GameBoard searchBoard, int player, int maxLevels, long timeLimit,
+                              SearchProgress progress, SearchFuture future, boolean pondering)
+    {
+        long key = searchBoard.getHash(player);
+        PonderedMove pondered = pondering ? null : ponderedMoves.get(key);
+
+        // the opponent played a reply that was already searched
+        if (pondered != null && player == ponderPlayer && maxLevels == ponderLevels
+                && timeLimit == ponderTime)
+        {
+            ponderedMoves.clear();
+            report(pondered.stats, "pondered move; " + pondered.summary);
+            return pondered.move;
+        }
+
+        long start = System.nanoTime();
+        long startHits = table.getHits();
+        long startProbes = startHits + table.getMisses() + table.getCollisions();
+        AIMoveTest bestMove = new AIMoveTest(player == GameBoard.ENEMY);
+        boolean bookMove = openingBook != null
+                && openingBook.probe(searchBoard, player, bestMove.move);
+        String summary;
+        long nodes;
+        int levels;
+        long cutoffs;
+        long tablebaseHits;
+
+        // a book move needs no search; it is scored like a leaf of the search
+        if (bookMove)
+        {
+            bestMove.score = searchBoard.getBoardScore();
+            summary = "book move";
+            nodes = 0;
+            levels = -1;
+            cutoffs = 0;
+            tablebaseHits = 0;
+        }
+        else if (threads > 1 && lazySMP)
+        {
+            LazySMPSearch search = new LazySMPSearch(searchBoard, table, threads);
+            search.setTablebase(tablebase);
+            search.setQuiescence(quiescence);
+            search.setProgress(progress);
+
+            if (future != null)
+            {
+                future.attach(search::stop);
+            }
+
+            bestMove = search.search(player, maxLevels, timeLimit);
+            summary = search.getSummary();
+            nodes = search.getNodes();
+            levels = search.getLevelsCompleted();
+            cutoffs = search.getCutoffs();
+            tablebaseHits = search.getTablebaseHits();
+        }
+        else
+        {
+            AISearch search = new AISearch(searchBoard, table);
+            search.setTablebase(tablebase);
+            search.setQuiescence(quiescence);
+            search.setProgress(progress);
+
+            if (threads > 1)
+            {
+                search.setParallel(getPool(), SPLIT_LEVELS);
+            }
+
+            if (future != null)
+            {
+                future.attach(search::stop);
+            }
+
+            bestMove = search.search(player, maxLevels, timeLimit);
+            summary = search.getSummary();
+            nodes = search.nodes;
+            levels = search.levelsCompleted;
+            cutoffs = search.cutoffs;
+            tablebaseHits = search.tablebaseHits;
+        }
+
+        // the statistics of a stopped search are not worth reporting
+        if (future != null && future.isCancelled())
+        {
+            return bestMove;
+        }
+
+        long hits = table.getHits() - startHits;
+        long probes = table.getHits() + table.getMisses() + table.getCollisions() - startProbes;
+        SearchStats stats = new SearchStats(player, levels, nodes, cutoffs, tablebaseHits,
+                probes, hits, System.nanoTime() - start, bookMove);
+
+        if (pondering)
+        {
+            PonderedMove move = new PonderedMove(bestMove, stats, summary);
+
+            //
+            // The pondering may have been stopped, and its moves thrown away,
+            // since the check above.  Only store the move while this is still
+            // the current pondering; the check is made under the map's lock
+            // for the key, so forgetPondering() clears it after it is stored.
+            //
+            ponderedMoves.compute(key, (hash, old) -> (future == ponder) ? move : old);
+        }
+        else
+        {
+            report(stats, summary);
+        }
+
+        return bestMove;
+    }
+
+    /**
+     * Records the statistics of a search as the last search's, and passes
+     * them to the SearchListeners.
+     *
+     * @param stats cost of the search
+     * @param summary statistics as one line of text
+     */
+    private void report(SearchStats stats, String summary)
+    {
+        searchStats = stats;
+        searchSummary = summary;
+        searchNodes = stats.getNodes();
+
+        for (SearchListener listener : listeners)
+        {
+            listener.searchFinished(stats);
+        }
+    }
+
+    /**
+     * Returns the statistics of the last search as one line of text (see
+     * AISearch.getSummary()).
+     *
+     * @return summary of the last search, or an empty string if none was run
+     */
+    public String getSearchSummary()
+    {
+        return searchSummary;
+    }
+
+    /**
+     * Returns the cost of the last search (see SearchStats).
+     *
+     * @return statistics of the last search, or null if none was run
+     */
+    public SearchStats getSearchStats()
+    {
+        return searchStats;
+    }
+
+    /**
+     * Returns the number of positions the last search visited, counting
+     * every thread.
+     *
+     * @return node count of the last search, 0 if none was run or the move
+     *         came from the opening book
+     */
+    public long getSearchNodes()
+    {
+        return searchNodes;
+    }
+
+    /**
+     * A move found by pondering, with the statistics of the search that
+     * found it
+     */
+    private static final class PonderedMove
+    {
+        final AIMoveTest move;
+        final SearchStats stats;
+        final String summary;
+
+        PonderedMove(AIMoveTest bestMove, SearchStats searchStats, String searchSummary)
+        {
+            move = bestMove;
+            stats = searchStats;
+            summary = searchSummary;
+        }
+    }
+}
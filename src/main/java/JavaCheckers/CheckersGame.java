@@ -6,8 +6,11 @@ import javax.swing.JPanel;
 import javax.swing.JButton;
 import javax.swing.JOptionPane;
 import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
+import javax.management.JMException;
 import java.awt.Dimension;
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
@@ -74,7 +77,8 @@ public class CheckersGame implements MouseListener
     Image img_board;
 
     /**
-     * Temp image to smoothly faded out pieces as they are jumped
+     * Image of the piece being faded out as it is jumped (the board panel's
+     * reusable jumpPieceImage), or null when no piece is fading
      */
     BufferedImage img_jumpPiece;
 
@@ -84,7 +88,7 @@ public class CheckersGame implements MouseListener
     JFrame jframe;
 
     /**
-     * Button to initialize a new game. Calls GameBoard.newGame().
+     * Button to initialize a new game. Calls CheckersEngine.newGame().
      */
     JButton btnNewGame;
 
@@ -170,7 +174,59 @@ public class CheckersGame implements MouseListener
      * Logic backend for the current game. Controls piece locations and enforces
      * game rules.  Also handles AI.
      */
-    GameBoard currGame;
+    CheckersEngine engine;
+
+    /**
+     * The computer's move being searched for in the background, or null if
+     * the computer is not thinking.  Clicks on the board are ignored while
+     * it is set.
+     */
+    SearchFuture enemySearch;
+
+    /**
+     * Most time in milliseconds the AI may think about a move.  The search
+     * goes as deep as the difficulty level allows, or as deep as it can get
+     * in this time, whichever comes first.
+     */
+    static final long MOVE_TIME_MS = 2000;
+
+    /**
+     * Number of threads for the AI to search with using Lazy SMP (see
+     * LazySMPSearch), or 0 to split its search between one thread per
+     * processor instead
+     */
+    static final int LAZY_SMP_THREADS = 0;
+
+    /**
+     * System property naming a properties file of evaluation weights (see
+     * WeightedEvaluator).  If unset, the AI uses the default evaluator.
+     */
+    static final String WEIGHTS_PROPERTY = "checkers.weights";
+
+    /**
+     * System property naming a directory holding an endgame tablebase (see
+     * TablebaseGenerator).  If unset, the AI searches endgames like any
+     * other position.
+     */
+    static final String TABLEBASE_PROPERTY = "checkers.tablebase";
+
+    /**
+     * System property naming an opening book file (see OpeningBookBuilder).
+     * If unset, the AI searches from the first move.
+     */
+    static final String BOOK_PROPERTY = "checkers.book";
+
+    /**
+     * System property that turns the AI's capture search at the end of its
+     * search off when set to "false" (see CheckersEngine.setQuiescence()).
+     */
+    static final String QUIESCENCE_PROPERTY = "checkers.quiescence";
+
+    /**
+     * System property that, when set to "true", publishes the cost of the
+     * AI's searches over JMX (see SearchMonitor).
+     */
+    static final String JMX_PROPERTY = "checkers.jmx";
 
     /**
      * Font for displaying messages on screen.
@@ -222,7 +278,43 @@ public class CheckersGame implements MouseListener
         basePath = f.getParent();
 
         // initialize instance variables
-        currGame = new GameBoard();
+        engine = new CheckersEngine();
+        if (LAZY_SMP_THREADS > 0)
+        {
+            engine.setThreads(LAZY_SMP_THREADS, true);
+        }
+        else
+        {
+            engine.setThreads(Runtime.getRuntime().availableProcessors(), false);
+        }
+        String weightsFile = System.getProperty(WEIGHTS_PROPERTY);
+        if (weightsFile != null)
+        {
+            engine.setEvaluator(WeightedEvaluator.load(Paths.get(weightsFile)));
+        }
+        String tablebaseDirectory = System.getProperty(TABLEBASE_PROPERTY);
+        if (tablebaseDirectory != null)
+        {
+            engine.setTablebase(Tablebase.open(Paths.get(tablebaseDirectory)));
+        }
+        String bookFile = System.getProperty(BOOK_PROPERTY);
+        if (bookFile != null)
+        {
+            engine.setOpeningBook(OpeningBook.open(Paths.get(bookFile)));
+        }
+        engine.setQuiescence(!"false".equals(System.getProperty(QUIESCENCE_PROPERTY)));
+        engine.addSearchListener(stats -> SwingUtilities.invokeLater(() -> showSearchStats(stats)));
+        if (Boolean.getBoolean(JMX_PROPERTY))
+        {
+            try
+            {
+                SearchMonitor.register(engine, "game");
+            }
+            catch (JMException e)
+            {
+                System.err.println("Search statistics not published over JMX: " + e.getMessage());
+            }
+        }
         playerName = null;
         compName = "Computer";
         rootPanel = new RootPanel(new BorderLayout(), this);
@@ -252,7 +344,6 @@ public class CheckersGame implements MouseListener
         initializePanels();
 
         waitingForInput = true;      // indicate it's the user's turn
-        rootPanel.paintImmediately(0, 0, 600, 600);
         jframe.pack();
         jframe.setVisible(true);
     }
@@ -339,7 +430,6 @@ public class CheckersGame implements MouseListener
         leftPanel.setPreferredSize(new Dimension(100, 400));
         leftPanel.setOpaque(false);
 
-        middlePanel.setOpaque(false);
         middlePanel.setPreferredSize(new Dimension(400, 400));
 
         // rootPanel serves as the background and holds all other panels
@@ -365,6 +455,18 @@ public class CheckersGame implements MouseListener
         gameStatus.paintImmediately(0, 0, 600, 25);
     }
 
+    /**
+     * Shows what the computer's last search cost as the tooltip of the
+     * status line.  Called on the event dispatch thread for each move the
+     * engine reports to its SearchListeners.
+     *
+     * @param stats cost of the search
+     */
+    void showSearchStats(SearchStats stats)
+    {
+        gameStatus.setToolTipText("Computer's last move: " + stats);
+    }
+
     /**
      * Checks if the user has clicked somewhere on the game board.  If a game
      * is in progress, call the routine to check for/do valid moves.
@@ -374,8 +476,9 @@ public class CheckersGame implements MouseListener
         int col = (e.getX() - 100) / 50;
         int row = (e.getY() - 100) / 50;
 
-        // make sure the click is on the board and that a game is in progress
-        if (col >= 0 && col < 8 && row >= 0 && row < 8 && gameInProgress)
+        // make sure the click is on the board, a game is in progress, and it's the user's turn
+        if (col >= 0 && col < 8 && row >= 0 && row < 8 && gameInProgress
+                && enemySearch == null && !middlePanel.isAnimating())
         {
             doClickSquare(row, col);
         }
@@ -393,6 +496,8 @@ public class CheckersGame implements MouseListener
     public void doClickSquare(int row, int col)
     {
         boolean newSelection = false;
+        int oldRow = selectedRow;
+        int oldCol = selectedCol;
 
         //
         // If the player clicked on one of the pieces that the player
@@ -412,12 +517,16 @@ public class CheckersGame implements MouseListener
                 selectedRow = row;
                 selectedCol = col;
 
-                middlePanel.paintImmediately(0, 0, 400, 400);
                 changeStatus("Select location to move to.");
                 newSelection = true;
             }
         }
 
+        if (newSelection)
+        {
+            middlePanel.repaintSelection(oldRow, oldCol);
+        }
+
         //
         // If no piece has been selected to be moved, the user must first
         // select a piece.  Show an error message and return.
@@ -440,6 +549,7 @@ public class CheckersGame implements MouseListener
                         legalMoves[i].toRow == row && legalMoves[i].toCol == col)
                 {
                     doMakeMove(legalMoves[i]);
+                    break;
                 }
             }
         }
@@ -455,8 +565,18 @@ public class CheckersGame implements MouseListener
     void doMakeMove(CheckersMove move)
     {
         selectedRow = -1;
-        middlePanel.animateMove(move);
+        middlePanel.animateMove(move, () -> finishPlayerMove(move));
+    }
 
+    /**
+     * Called on the event dispatch thread once the user's move has been
+     * animated.  Either lets the user continue a series jump, or ends the
+     * user's turn and starts the computer's.
+     *
+     * @param move the move the user made
+     */
+    void finishPlayerMove(CheckersMove move)
+    {
         //
         // If the move was a jump, it's possible that the player has another
         // jump.  Check for legal jumps starting from the square that the player
@@ -465,7 +585,7 @@ public class CheckersGame implements MouseListener
         //
         if (move.isJump())
         {
-            legalMoves = currGame.getLegalJumpsFrom(GameBoard.PLAYER,
+            legalMoves = engine.getLegalJumpsFrom(GameBoard.PLAYER,
                     move.toRow, move.toCol);
             if (legalMoves != null)
             {
@@ -482,8 +602,7 @@ public class CheckersGame implements MouseListener
         //
         if (selectedRow == -1)
         {
-            middlePanel.paintImmediately(0, 0, 400, 400);
-            legalMoves = currGame.getLegalMoves(GameBoard.ENEMY);
+            legalMoves = engine.getLegalMoves(GameBoard.ENEMY);
             if (legalMoves == null)
             {
                 gameOver(compName + " has no moves.  " + playerName + " wins.");
@@ -493,97 +612,157 @@ public class CheckersGame implements MouseListener
                 changeStatus("Computer's move. Please wait...");
                 doEnemyMove();
             }
+        }
 
-            legalMoves = currGame.getLegalMoves(GameBoard.PLAYER);
-            if (legalMoves == null)
-            {
-                gameOver(playerName + " has no moves.  " + compName + " wins.");
-            }
-            if (gameInProgress)
-            {
-                gameStatus.setText("Select a piece to move.");
-            }
+        // Make sure the outlines for the user's next jump are drawn.
+        middlePanel.repaintOutlines();
+    }
 
-            //
-            // As a courtesy to the user, if all legal moves use the same piece,
-            // select that piece automatically so the user won't have to click on
-            // it to select it.
-            //
-            if (legalMoves != null)
+    /**
+     * Starts the user's turn once the computer has moved.  Gets the user's
+     * legal moves, ending the game if there are none, and has the engine
+     * ponder its replies while the user thinks.
+     */
+    void startPlayerTurn()
+    {
+        legalMoves = engine.getLegalMoves(GameBoard.PLAYER);
+        if (legalMoves == null)
+        {
+            gameOver(playerName + " has no moves.  " + compName + " wins.");
+        }
+        if (gameInProgress)
+        {
+            gameStatus.setText("Select a piece to move.");
+        }
+
+        //
+        // As a courtesy to the user, if all legal moves use the same piece,
+        // select that piece automatically so the user won't have to click on
+        // it to select it.
+        //
+        if (legalMoves != null)
+        {
+            boolean sameStartSquare = true;
+            for (int i = 1; i < legalMoves.length; i++)
             {
-                boolean sameStartSquare = true;
-                for (int i = 1; i < legalMoves.length; i++)
+                if (legalMoves[i].fromRow != legalMoves[0].fromRow ||
+                        legalMoves[i].fromCol != legalMoves[0].fromCol)
                 {
-                    if (legalMoves[i].fromRow != legalMoves[0].fromRow ||
-                            legalMoves[i].fromCol != legalMoves[0].fromCol)
-                    {
-                        sameStartSquare = false;
-                        break;
-                    }
-                }
-                if (sameStartSquare)
-                {
-                    selectedRow = legalMoves[0].fromRow;
-                    selectedCol = legalMoves[0].fromCol;
-                    changeStatus("You can only move this piece.");
+                    sameStartSquare = false;
+                    break;
                 }
             }
+            if (sameStartSquare)
+            {
+                selectedRow = legalMoves[0].fromRow;
+                selectedCol = legalMoves[0].fromCol;
+                changeStatus("You can only move this piece.");
+            }
+        }
+
+        if (gameInProgress)
+        {
+            startPondering();
         }
 
-        // Make sure the board is redrawn in its new state.
-        middlePanel.paintImmediately(0, 0, 400, 400);
+        // Make sure the outlines for the user's move are drawn.
+        middlePanel.repaintOutlines();
+    }
+
+    /**
+     * Has the engine search the computer's answer to each of the user's
+     * possible moves while the user is thinking, so the computer can reply
+     * at once (see CheckersEngine.startPondering()).
+     */
+    void startPondering()
+    {
+        engine.startPondering(GameBoard.ENEMY, engine.getMaxLevels(), MOVE_TIME_MS);
     }
 
     /**
-     * Calls the routine to perform AI analysis and choose an optimal move
-     * for the computer.  Performs the move, and repeats if the move was
-     * a jump and more jumps are available (repeat jumps).
+     * Starts the AI analysis to choose an optimal move for the computer.
+     * The search runs on the engine's search thread so the window stays
+     * responsive, with the status line showing how many turns ahead it has
+     * looked.  When it is done, finishEnemyMove() makes the move on the
+     * event dispatch thread.
      */
     public void doEnemyMove()
     {
         waitingForInput = false;    // used to disable painting user input objects
-        AIMoveTest currMove = null; // stores the move chosen by doRecursiveAI
-        int currPlayer = GameBoard.ENEMY;
 
-        do
+        SearchFuture search = engine.searchAsync(GameBoard.ENEMY,
+                engine.getMaxLevels(), MOVE_TIME_MS,
+                (levels, bestMove) -> SwingUtilities.invokeLater(() ->
+                {
+                    if (enemySearch != null)
+                    {
+                        changeStatus("Computer's move. Looked " + (levels + 1)
+                                + " turns ahead...");
+                    }
+                }));
+        enemySearch = search;
+        search.whenComplete((currMove, error) -> SwingUtilities.invokeLater(() ->
+                finishEnemyMove(search, currMove, error)));
+    }
+
+    /**
+     * Called on the event dispatch thread when the AI search started by
+     * doEnemyMove() is over.  Performs the move, animating each jump of a
+     * series jump in turn, and starts the user's turn once the animation is
+     * over.  Does nothing for a search that was cancelled by a new game.
+     *
+     * @param search the search that is over
+     * @param currMove best move found, if the search completed
+     * @param error what went wrong, if the search failed or was cancelled
+     */
+    void finishEnemyMove(SearchFuture search, AIMoveTest currMove, Throwable error)
+    {
+        if (search != enemySearch)
         {
-            if (currMove == null)
-            {
-                currMove = new AIMoveTest(true);
-            }
-            else
-            {
-                //
-                // Execution gets here during a multiple jump move.
-                // This prevents the AI routine from moving the same piece again
-                // (it won't do the move if toRow==fromRow), while still setting
-                // the previous move as a jump, which is tested by seeing if
-                // Math.abs(toCol - fromCol == 2).  Since doRecursiveAI switches
-                // players each turn, the currPlayer is changed to compensate
-                // for this.
-                //
-                currMove.move.fromRow = currMove.move.toRow;
-                currPlayer = GameBoard.PLAYER;
-            }
+            return;
+        }
 
-            currMove = currGame.doRecursiveAI(currGame, currMove.move, 0,
-                    currPlayer);
+        enemySearch = null;
 
+        if (error != null)
+        {
+            error.printStackTrace();
+        }
+        else
+        {
             // only move if a legal move was found
             if (currMove.hasMove())
             {
-                middlePanel.animateMove(currMove.move);
+                middlePanel.animateMoves(currMove.move.getSteps(), () ->
+                {
+                    waitingForInput = true;    // it's the user's turn again
+                    startPlayerTurn();
+                });
+                return;
             }
-        } while (currMove.move.isJump() &&
-                (currGame.getLegalJumpsFrom(GameBoard.ENEMY, currMove.move.toRow,
-                        currMove.move.toCol) != null));
+        }
 
         waitingForInput = true;    // it's the user's turn again
+        startPlayerTurn();
+    }
+
+    /**
+     * Stops the AI search in progress, if the computer is thinking, without
+     * making its move.  Called when a new game is started.
+     */
+    void cancelEnemyMove()
+    {
+        if (enemySearch != null)
+        {
+            enemySearch.cancel(true);
+            enemySearch = null;
+            waitingForInput = true;
+        }
     }
 
     /**
-     * Called by doMakeMove.  It is assumed that a player has been determined
-     * to have lost already.  Outputs the message argument and sets
+     * Called by doMakeMove and startPlayerTurn.  It is assumed that a player
+     * has been determined to have lost already.  Outputs the message argument and sets
      * the gameInProgress status to false so that nothing can be done until
      * a new game is initialized or the applet is closed.
      *
@@ -592,9 +771,10 @@ public class CheckersGame implements MouseListener
     void gameOver(String displayMessage)
     {
         changeStatus("Game Over");
+        engine.stopPondering();
         JOptionPane.showMessageDialog(null, displayMessage);
         gameInProgress = false;
-        rootPanel.paintImmediately(0, 0, 600, 600);
+        rootPanel.repaint();
         changeStatus("Click 'New Game' to start a new game.");
     }
 
@@ -3,6 +3,12 @@ package JavaCheckers;
 /**
  * A CheckersMove contains row/col values for a piece being moved and it's
  * target row/col values.
+ *
+ * <p> Moves made by the player are single steps.  Moves generated by
+ * GameBoard.getLegalTurns() are complete turns: a series jump is one move,
+ * from the square the piece starts on to the square it finally lands on,
+ * with the squares it lands on along the way in path and the squares of
+ * the jumped pieces in captured.
  * 
  * @author Jason Hamilton
  */
@@ -27,6 +33,28 @@ public class CheckersMove
     * Column where the piece is to be moved
     */
    int toCol;
+
+   /**
+    * Most jumps one turn can contain (one for each opponent piece)
+    */
+   static final int MAX_PATH = 12;
+
+   /**
+    * Squares (numbered as in Bitboard) the piece lands on, in order, for a
+    * move that is a complete turn.  Unused for a single step.
+    */
+   int[] path;
+
+   /**
+    * Number of squares in path, or 0 for a single step
+    */
+   int pathLength;
+
+   /**
+    * Mask of the squares (numbered as in Bitboard) of the pieces jumped by
+    * a complete turn, or 0
+    */
+   int captured;
    
    /**
     * Constructor. Initializes all member variables to argument values.
@@ -45,13 +73,122 @@ public class CheckersMove
     }
     
     /**
-     * Determines whether the move currently stored is a jump by seeing
-     * if the fromCol and toCol are 2 spaces apart.
+     * Assigns new values to all member variables.  Used to refill reusable
+     * move buffers without creating new instances.
+     * 
+     * @param newFromRow Row where the piece is currently located
+     * @param newFromCol Column where the piece is currently located
+     * @param newToRow Row where the piece is to be moved
+     * @param newToCol Column where the piece is to be moved
+     */
+    void set(int newFromRow, int newFromCol, int newToRow, int newToCol)
+    {
+       fromRow = newFromRow;
+       fromCol = newFromCol;
+       toRow = newToRow;
+       toCol = newToCol;
+       pathLength = 0;
+       captured = 0;
+    }
+
+    /**
+     * Copies another move, including its path, into this one.
+     *
+     * @param other move to copy
+     */
+    void set(CheckersMove other)
+    {
+       fromRow = other.fromRow;
+       fromCol = other.fromCol;
+       toRow = other.toRow;
+       toCol = other.toCol;
+       pathLength = other.pathLength;
+       captured = other.captured;
+
+       if (pathLength > 0)
+       {
+          System.arraycopy(other.path, 0, getPath(), 0, pathLength);
+       }
+    }
+
+    /**
+     * Returns the path array, creating it the first time it is needed.
+     *
+     * @return array with room for the longest possible path
+     */
+    int[] getPath()
+    {
+       if (path == null)
+       {
+          path = new int[MAX_PATH];
+       }
+
+       return path;
+    }
+
+    /**
+     * Splits the move into its single steps, in the order they are made.
+     * A single step is returned as a copy of itself.
+     *
+     * @return one move for each jump of a series jump, or the move itself
+     */
+    CheckersMove[] getSteps()
+    {
+       if (pathLength <= 1)
+       {
+          return new CheckersMove[] {new CheckersMove(fromRow, fromCol, toRow, toCol)};
+       }
+
+       CheckersMove[] steps = new CheckersMove[pathLength];
+       int row = fromRow;
+       int col = fromCol;
+
+       for (int i = 0; i < pathLength; i++)
+       {
+          int nextRow = Bitboard.row(path[i]);
+          int nextCol = Bitboard.col(path[i]);
+          steps[i] = new CheckersMove(row, col, nextRow, nextCol);
+          row = nextRow;
+          col = nextCol;
+       }
+
+       return steps;
+    }
+    
+    /**
+     * Determines whether the move currently stored is a jump, either a
+     * complete turn that captures pieces or a single step where the fromCol
+     * and toCol are 2 spaces apart.
      * 
      * @return true if the move is a jump, false if not
      */
     boolean isJump()
     {
-       return (Math.abs(fromCol - toCol) == 2);
+       return (captured != 0 || Math.abs(fromCol - toCol) == 2);
+    }
+
+    /**
+     * Returns the move as text, such as "(5,0)-(4,1)" for a move from row 5,
+     * col 0 to row 4, col 1, or "(5,0)x(3,2)x(1,4)" for a series jump.
+     *
+     * @return source and target locations of the move
+     */
+    @Override
+    public String toString()
+    {
+       if (pathLength <= 1)
+       {
+          return "(" + fromRow + "," + fromCol + ")-(" + toRow + "," + toCol + ")";
+       }
+
+       StringBuilder text = new StringBuilder("(" + fromRow + "," + fromCol + ")");
+
+       for (int i = 0; i < pathLength; i++)
+       {
+          text.append("x(").append(Bitboard.row(path[i])).append(",")
+                  .append(Bitboard.col(path[i])).append(")");
+       }
+
+       return text.toString();
     }
 }
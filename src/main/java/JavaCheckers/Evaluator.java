@@ -0,0 +1,51 @@
+package JavaCheckers;
+
+/**
+ * An Evaluator scores a position at the leaves of the AI's search (see
+ * GameBoard.getBoardScore()).  Scores are from the computer's (ENEMY's)
+ * point of view: the higher the score, the better the position for the
+ * computer.
+ *
+ * <p> The search relies on the score range: 100 means the computer has
+ * won (the player has no pieces left), -100 means the player has won, and
+ * every other position must score from -MAX_SCORE to MAX_SCORE.  Scores
+ * above MAX_SCORE, up to 99, are used by the search for endgames a
+ * Tablebase proves won, and scores of 200 and -200 for wins found before
+ * the last level.
+ *
+ * <p> One evaluator is shared by every copy of a board and by every thread
+ * of a parallel search, so evaluate() must not change the evaluator.
+ *
+ * @author Jason Hamilton
+ */
+public interface Evaluator
+{
+    /**
+     * Largest score of a position that is not won.  It is below the score
+     * of the longest tablebase win, AISearch.TABLEBASE_WIN - 0.01 * 127, so
+     * an evaluation never outranks a proven win.
+     */
+    double MAX_SCORE = 97.5;
+
+    /**
+     * Scores a position.
+     *
+     * @param board position to score; must not be changed
+     * @return 100 for a computer win, -100 for a player win, otherwise a
+     *         score from -MAX_SCORE to MAX_SCORE, higher being better for
+     *         the computer
+     */
+    double evaluate(GameBoard board);
+
+    /**
+     * Returns the score of a position known to be drawn, such as a drawn
+     * endgame found in a Tablebase.  It should be the score this
+     * evaluator gives an even position.
+     *
+     * @return score of a draw, 0 unless overridden
+     */
+    default double drawScore()
+    {
+        return 0;
+    }
+}
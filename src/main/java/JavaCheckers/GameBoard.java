@@ -1,19 +1,47 @@
 package JavaCheckers;
 
-import javax.swing.JOptionPane;
-import java.util.Vector;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The GameBoard is a pure logic oriented class to be used as a backend for
  * the CheckersGame applet.  The class methods enforce the appropriate
- * rules for moves, and drive AI through the same methods.
+ * rules for moves, and drive AI through the same methods.  It does not use
+ * Swing, so it can also run without a display (see CheckersEngine).
  *
  * @author Jason Hamilton
  */
 public class GameBoard
 {
-    // handles moving the pieces and tracking game stats
-    private int[][] board; // used to represent 8 x 8 checkerboard
+    //
+    // The position is stored as bitboards, one bit per playable square (see
+    // Bitboard for the square numbering).  A square holds a king if its bit
+    // is set in kings as well as in the owner's mask.
+    //
+    private int playerPieces; // squares holding PLAYER men and kings
+    private int enemyPieces;  // squares holding ENEMY men and kings
+    private int kings;        // squares holding a king of either side
+
+    // Zobrist hash of the pieces on the board, kept up to date by every move
+    private long hash;
+
+    //
+    // Number of pieces of each kind on the board, also kept up to date by
+    // every move (and its undo) so the leaves of a search can be scored
+    // without counting the board again.
+    //
+    private int playerMen;
+    private int playerKings;
+    private int enemyMen;
+    private int enemyKings;
+
+    //
+    // When set (with -Dcheckers.checkIncremental=true), every move and undo
+    // checks the hash and piece counts it updates against a full count of
+    // the board, and throws IllegalStateException if they differ.  Slow;
+    // meant for tracking down bugs in the incremental updates.
+    //
+    static final boolean CHECK_INCREMENTAL = Boolean.getBoolean("checkers.checkIncremental");
 
     // Constants for identifying game piece types on the board
     public static final int EMPTY = 0;
@@ -25,6 +53,13 @@ public class GameBoard
     private static final int DEFAULT_LEVEL = 3;
     int maxLevels;
 
+    // scores positions at the leaves of the AI's search, see getBoardScore()
+    private static final Evaluator DEFAULT_EVALUATOR = new MaterialRatioEvaluator();
+    private Evaluator evaluator = DEFAULT_EVALUATOR;
+
+    // counts every use of the copy constructor, see getBoardCopies()
+    private static final AtomicLong boardCopies = new AtomicLong();
+
     /**
      * Constructor.  All the initialization is best done each time a new game
      * is called, not when the object is created.  See newGame().
@@ -35,28 +70,27 @@ public class GameBoard
     }
 
     /**
-     * Initializes a new game.  Called by btnNewGame in the CheckersGame class.
-     * Resets all pieces on the board to starting positions, and prompts for the
-     * AI difficulty level in a dialog box.
+     * Initializes a new game.  Called through CheckersEngine when a new game
+     * is started.  Resets all pieces on the board to starting positions; the
+     * AI difficulty is kept (see setDifficulty()).
      */
     public void newGame()
     {
-        board = new int[8][8];
-        Object[] levelOptions = {"Easy", "Medium", "Hard"};
-        maxLevels = JOptionPane.showOptionDialog(
-            null,
-            "Select a difficulty level:",
-            "New Game",
-            JOptionPane.YES_NO_CANCEL_OPTION,
-            JOptionPane.QUESTION_MESSAGE,
-            null,
-            levelOptions,
-            levelOptions[2]
-        );
-
-        if (maxLevels > -1)
-        {
-            maxLevels = 3 * maxLevels;
+        // add game pieces to outer 3 rows (squares 0-11 and 20-31)
+        setPosition(0xFFF00000, 0x00000FFF, 0);
+    }
+
+    /**
+     * Sets the AI difficulty level, which decides how many levels deep the
+     * AI searches (maxLevels).
+     *
+     * @param level 0 for easy, 1 for medium, 2 for hard, or -1 for the default
+     */
+    public void setDifficulty(int level)
+    {
+        if (level > -1)
+        {
+            maxLevels = 3 * level;
             if (maxLevels < 1)
             {
                 maxLevels = 1;
@@ -64,19 +98,51 @@ public class GameBoard
         }
         else
         {
-            // use default difficulty setting if the user clicked the "X"
+            // use default difficulty setting if no level was chosen
             maxLevels = DEFAULT_LEVEL;
         }
+    }
 
-        // add game pieces to outer 3 rows
-        for (int row = 0; row < 3; row++)
-        {
-            for (int col = row % 2; col < 8; col += 2)
-            {
-                board[row][col] = ENEMY;
-                board[7 - row][7 - col] = PLAYER;
-            }
-        }
+    /**
+     * Sets the Evaluator the AI scores positions with.  Copies of the board
+     * made afterwards use the same evaluator.
+     *
+     * @param newEvaluator evaluator to use, or null for the default
+     *                     (MaterialRatioEvaluator)
+     */
+    public void setEvaluator(Evaluator newEvaluator)
+    {
+        evaluator = (newEvaluator != null) ? newEvaluator : DEFAULT_EVALUATOR;
+    }
+
+    /**
+     * Returns the Evaluator the AI scores positions with.
+     *
+     * @return the board's evaluator
+     */
+    public Evaluator getEvaluator()
+    {
+        return evaluator;
+    }
+
+    /**
+     * Places pieces on the board, replacing the ones there.  Each argument
+     * has one bit per playable square, numbered as in Bitboard.
+     *
+     * @param player squares holding PLAYER men and kings
+     * @param enemy squares holding ENEMY men and kings
+     * @param kingSquares squares holding a king of either side
+     */
+    void setPosition(int player, int enemy, int kingSquares)
+    {
+        playerPieces = player;
+        enemyPieces = enemy & ~player;
+        kings = kingSquares & (playerPieces | enemyPieces);
+        hash = Zobrist.hashPieces(this);
+        playerKings = Integer.bitCount(playerPieces & kings);
+        playerMen = Integer.bitCount(playerPieces) - playerKings;
+        enemyKings = Integer.bitCount(enemyPieces & kings);
+        enemyMen = Integer.bitCount(enemyPieces) - enemyKings;
     }
 
     /**
@@ -88,43 +154,116 @@ public class GameBoard
      */
     GameBoard(GameBoard oldBoard)
     {
-        board = new int[8][8]; // stores what piece is on each space
+        boardCopies.incrementAndGet();
         maxLevels = oldBoard.maxLevels;
+        evaluator = oldBoard.evaluator;
+        playerPieces = oldBoard.playerPieces;
+        enemyPieces = oldBoard.enemyPieces;
+        kings = oldBoard.kings;
+        hash = oldBoard.hash;
+        playerMen = oldBoard.playerMen;
+        playerKings = oldBoard.playerKings;
+        enemyMen = oldBoard.enemyMen;
+        enemyKings = oldBoard.enemyKings;
+    }
 
-        for (int x = 0; x < 8; x++)
-        {
-            for (int y = 0; y < 8; y++)
-            {
-                board[x][y] = oldBoard.board[x][y];
-            }
-        }
+    /**
+     * Returns how many GameBoard copies have been made so far by the copy
+     * constructor.  Comparing the value before and after a search shows how
+     * many hypothetical boards the search created; the in-place search in
+     * AISearch should not create any.
+     *
+     * @return total number of board copies made since the program started
+     */
+    static long getBoardCopies()
+    {
+        return boardCopies.get();
+    }
+
+    /**
+     * Returns the Zobrist hash of the position for the given player to move.
+     * Two boards with the same pieces on the same squares and the same
+     * player to move always have the same hash.
+     *
+     * @param player player whose turn it is (PLAYER or ENEMY)
+     * @return 64-bit hash of the position
+     */
+    public long getHash(int player)
+    {
+        return (player == ENEMY) ? hash ^ Zobrist.ENEMY_TO_MOVE : hash;
     }
 
     /**
-     * Gets the piece type in the board[][] array at the given row/col
-     * as one of the following constants:
+     * Gets the piece type on the board at the given row/col as one of the
+     * following constants:
      *
      * <pre>
      * EMPTY, PLAYER, PLAYER_KING, ENEMY, ENEMY_KING
      * <pre/>
      *
+     * Light (unplayable) squares are always EMPTY.
+     *
      * @param row row of the game square to check
      * @param col col of the game square to check
      */
     public int pieceAt(int row, int col)
     {
-        return board[row][col];
+        if (!Bitboard.isPlayable(row, col))
+        {
+            return EMPTY;
+        }
+
+        return pieceOn(Bitboard.square(row, col));
+    }
+
+    /**
+     * Gets the piece type on a playable square, as in pieceAt().
+     *
+     * @param square square number (see Bitboard)
+     * @return one of the piece type constants
+     */
+    private int pieceOn(int square)
+    {
+        int bit = 1 << square;
+        int piece = EMPTY;
+
+        if ((playerPieces & bit) != 0)
+        {
+            piece = ((kings & bit) != 0) ? PLAYER_KING : PLAYER;
+        }
+        else if ((enemyPieces & bit) != 0)
+        {
+            piece = ((kings & bit) != 0) ? ENEMY_KING : ENEMY;
+        }
+
+        return piece;
     }
 
     /**
      * Make the specified move.  It is assumed that move is non-null and that
-     * the move it represents is legal.
+     * the move it represents is legal.  The move may be a single step or a
+     * complete turn from getLegalTurns().
      *
      * @param move row/col locations of piece to move and location to move to
      */
     public void makeMove(CheckersMove move)
     {
-        makeMove(move.fromRow, move.fromCol, move.toRow, move.toCol);
+        if (move.pathLength == 0)
+        {
+            makeMove(move.fromRow, move.fromCol, move.toRow, move.toCol);
+            return;
+        }
+
+        int from = Bitboard.square(move.fromRow, move.fromCol);
+        int landings = 0;
+
+        for (int i = 0; i < move.pathLength; i++)
+        {
+            landings |= 1 << move.path[i];
+        }
+
+        doMove(from, Bitboard.square(move.toRow, move.toCol), move.captured,
+                (landings & kingRowOf(from)) != 0, null);
     }
 
     /**
@@ -141,28 +280,247 @@ public class GameBoard
      */
     public void makeMove(int fromRow, int fromCol, int toRow, int toCol)
     {
+        int from = Bitboard.square(fromRow, fromCol);
+        int to = Bitboard.square(toRow, toCol);
+        int jumped = Bitboard.jumpedSquare(from, to);
 
-        board[toRow][toCol] = board[fromRow][fromCol];
-        board[fromRow][fromCol] = EMPTY;
+        doMove(from, to, (jumped >= 0) ? 1 << jumped : 0,
+                ((1 << to) & kingRowOf(from)) != 0, null);
+    }
+
+    /**
+     * Returns the row on which a player's men are crowned.
+     *
+     * @param player PLAYER or ENEMY
+     * @return Bitboard.PLAYER_KING_ROW or Bitboard.ENEMY_KING_ROW
+     */
+    private static int crownRow(int player)
+    {
+        return (player == PLAYER) ? Bitboard.PLAYER_KING_ROW : Bitboard.ENEMY_KING_ROW;
+    }
 
-        if (Math.abs(fromRow - toRow) == 2)
+    /**
+     * Returns the first of the directions (see Bitboard) a piece may move
+     * in: men only move forward, up the board for PLAYER and down for ENEMY.
+     *
+     * @param player player the piece belongs to
+     * @param king true if the piece is a king
+     * @return Bitboard.UP_LEFT or Bitboard.DOWN_LEFT
+     */
+    private static int firstDirection(int player, boolean king)
+    {
+        return (king || player == PLAYER) ? Bitboard.UP_LEFT : Bitboard.DOWN_LEFT;
+    }
+
+    /**
+     * Returns the last of the directions a piece may move in (see
+     * firstDirection()).
+     *
+     * @param player player the piece belongs to
+     * @param king true if the piece is a king
+     * @return Bitboard.UP_RIGHT or Bitboard.DOWN_RIGHT
+     */
+    private static int lastDirection(int player, boolean king)
+    {
+        return (king || player == ENEMY) ? Bitboard.DOWN_RIGHT : Bitboard.UP_RIGHT;
+    }
+
+    /**
+     * Returns the row on which the piece on a square would be crowned.
+     *
+     * @param square square of a PLAYER or ENEMY piece
+     * @return Bitboard.PLAYER_KING_ROW or Bitboard.ENEMY_KING_ROW
+     */
+    private int kingRowOf(int square)
+    {
+        return crownRow(((playerPieces & (1 << square)) != 0) ? PLAYER : ENEMY);
+    }
+
+    /**
+     * Make a packed move in place, recording what is needed to take it back
+     * with unmakeMove().  Used by AISearch and Perft so that moves can be
+     * tested on a single board instead of a new copy for every move.
+     *
+     * @param move move from getLegalTurns(int, int[], int[], int)
+     * @param captured mask of the squares the move captures, from the same call
+     * @param undo record to fill in for unmakeMove(), or null if the move
+     *             will not be taken back
+     */
+    public void makeMove(int move, int captured, MoveUndo undo)
+    {
+        doMove(PackedMove.from(move), PackedMove.to(move), captured,
+                PackedMove.promotes(move), undo);
+    }
+
+    /**
+     * Takes back a move made by makeMove(int, int, MoveUndo), restoring the
+     * board to the state it was in before the move.  Moves must be taken
+     * back in the reverse order they were made.
+     *
+     * @param move the move that was made
+     * @param undo the record filled in when the move was made
+     */
+    public void unmakeMove(int move, MoveUndo undo)
+    {
+        int from = 1 << PackedMove.from(move);
+        int to = 1 << PackedMove.to(move);
+        boolean isPlayer = (playerPieces & to) != 0;
+        int capturedKings = Integer.bitCount(undo.capturedKings);
+        int capturedMen = Integer.bitCount(undo.captured) - capturedKings;
+        int promoted = undo.promoted ? 1 : 0;
+        hash = undo.hash;
+
+        if (isPlayer)
+        {
+            playerPieces = (playerPieces & ~to) | from;
+            enemyPieces |= undo.captured;
+            enemyMen += capturedMen;
+            enemyKings += capturedKings;
+            playerMen += promoted;
+            playerKings -= promoted;
+        }
+        else
         {
-            // The move is a jump.  Remove the jumped piece from the board.
-            int jumpRow = (fromRow + toRow) / 2;  // Row of the jumped piece.
-            int jumpCol = (fromCol + toCol) / 2;  // Column of the jumped piece.
-            board[jumpRow][jumpCol] = EMPTY;
+            enemyPieces = (enemyPieces & ~to) | from;
+            playerPieces |= undo.captured;
+            playerMen += capturedMen;
+            playerKings += capturedKings;
+            enemyMen += promoted;
+            enemyKings -= promoted;
         }
 
-        if (toRow == 0 && board[toRow][toCol] == PLAYER)
+        if ((kings & to) != 0)
         {
-            board[toRow][toCol] = PLAYER_KING;
+            kings &= ~to;
+
+            if (!undo.promoted)
+            {
+                kings |= from;
+            }
         }
-        if (toRow == 7 && board[toRow][toCol] == ENEMY)
+
+        kings |= undo.capturedKings;
+
+        if (CHECK_INCREMENTAL)
         {
-            board[toRow][toCol] = ENEMY_KING;
+            checkIncremental("unmakeMove");
         }
     }
 
+    /**
+     * Moves the piece on square "from" to square "to", removing the jumped
+     * pieces and crowning the moving piece as needed.  A man is crowned if it
+     * lands on the far row at any point of the move; in a series jump it then
+     * carries on jumping as a king.
+     *
+     * @param fromSquare square number the piece is currently at
+     * @param toSquare square number the piece finally lands on
+     * @param captured mask of the squares of the jumped pieces
+     * @param crowns true if the piece lands on the far row during the move
+     * @param undo record to fill in for unmakeMove(), or null if not needed
+     */
+    private void doMove(int fromSquare, int toSquare, int captured, boolean crowns,
+                        MoveUndo undo)
+    {
+        int from = 1 << fromSquare;
+        int to = 1 << toSquare;
+        int piece = pieceOn(fromSquare);
+        boolean promoted = crowns && (kings & from) == 0;
+
+        if (undo != null)
+        {
+            undo.hash = hash;
+            undo.captured = captured;
+            undo.capturedKings = captured & kings;
+            undo.promoted = promoted;
+        }
+
+        int capturedKings = Integer.bitCount(captured & kings);
+        int capturedMen = Integer.bitCount(captured) - capturedKings;
+
+        // remove the jumped pieces
+        for (int jumped = captured; jumped != 0; jumped &= jumped - 1)
+        {
+            int square = Integer.numberOfTrailingZeros(jumped);
+            hash ^= Zobrist.PIECE_KEYS[pieceOn(square)][square];
+        }
+
+        playerPieces &= ~captured;
+        enemyPieces &= ~captured;
+        kings &= ~captured;
+
+        int crowned = promoted ? 1 : 0;
+
+        if ((playerPieces & from) != 0)
+        {
+            playerPieces = (playerPieces & ~from) | to;
+            enemyMen -= capturedMen;
+            enemyKings -= capturedKings;
+            playerMen -= crowned;
+            playerKings += crowned;
+        }
+        else
+        {
+            enemyPieces = (enemyPieces & ~from) | to;
+            playerMen -= capturedMen;
+            playerKings -= capturedKings;
+            enemyMen -= crowned;
+            enemyKings += crowned;
+        }
+
+        if ((kings & from) != 0 || promoted)
+        {
+            kings = (kings & ~from) | to;
+        }
+
+        // a crowned man arrives as a king (PLAYER_KING and ENEMY_KING are one more)
+        hash ^= Zobrist.PIECE_KEYS[piece][fromSquare]
+                ^ Zobrist.PIECE_KEYS[promoted ? piece + 1 : piece][toSquare];
+
+        if (CHECK_INCREMENTAL)
+        {
+            checkIncremental("makeMove");
+        }
+    }
+
+    /**
+     * Checks the values kept up to date by every move against a full count
+     * of the board.  Only called when CHECK_INCREMENTAL is set.
+     *
+     * @param caller name of the method that updated the values, for the message
+     * @throws IllegalStateException if any value differs from the full count
+     */
+    private void checkIncremental(String caller)
+    {
+        int countedPlayerKings = Integer.bitCount(playerPieces & kings);
+        int countedEnemyKings = Integer.bitCount(enemyPieces & kings);
+        int countedPlayerMen = Integer.bitCount(playerPieces) - countedPlayerKings;
+        int countedEnemyMen = Integer.bitCount(enemyPieces) - countedEnemyKings;
+
+        if (hash != Zobrist.hashPieces(this)
+                || playerMen != countedPlayerMen || playerKings != countedPlayerKings
+                || enemyMen != countedEnemyMen || enemyKings != countedEnemyKings)
+        {
+            throw new IllegalStateException(caller + " left incremental values out of step: men/kings "
+                    + playerMen + "/" + playerKings + " vs " + enemyMen + "/" + enemyKings
+                    + ", counted " + countedPlayerMen + "/" + countedPlayerKings
+                    + " vs " + countedEnemyMen + "/" + countedEnemyKings
+                    + ", hash " + (hash == Zobrist.hashPieces(this) ? "ok" : "wrong"));
+        }
+    }
+
+    /**
+     * Returns whether any of the given squares holds a king.  Used to order
+     * moves that capture a king before other jumps.
+     *
+     * @param squares mask of squares (numbered as in Bitboard)
+     * @return true if a king is on one of the squares
+     */
+    boolean capturesKing(int squares)
+    {
+        return (kings & squares) != 0;
+    }
+
     /**
      * Return an array containing all the legal CheckersMoves for the specified
      * player on the current board.  If the player has no legal moves, null is
@@ -171,83 +529,198 @@ public class GameBoard
      * consists entirely of jump moves or entirely of regular moves, because if
      * the player can jump, only jumps are legal moves.
      *
+     * <p> The moves are single steps, so a series jump is made one jump at a
+     * time, continuing with getLegalJumpsFrom().
+     *
      * @param player current player whose pieces are being tested
      * @return CheckerMove array of all possible moves for the current player
      */
     public CheckersMove[] getLegalMoves(int player) {
 
-        CheckersMove[] moveArray;
+        if (player != PLAYER && player != ENEMY)
+        {
+            return null;
+        }
 
-        int playerKing = (player == PLAYER) ? PLAYER_KING : ENEMY_KING;
+        int[] moves = new int[AISearch.MAX_MOVES];
 
-        // Moves will be stored in this vector
-        Vector<CheckersMove> moves = new Vector<CheckersMove>();
+        return unpackMoves(moves, null, generateMoves(player, ~0, false, moves, 0));
+    }
 
-        //
-        // First, check for any possible jumps.  Look at each square on the board.
-        // If that square contains one of the player's pieces, look at a possible
-        // jump in each of the four directions from that square.  If there is
-        // a legal jump in that direction, put it in the moves vector.
-        //
-        for (int row = 0; row < 8; row++)
+    /**
+     * Returns an array of the legal moves for the specified player as
+     * complete turns (see getLegalTurns(int, int[], int[], int)), or null if
+     * the player has no legal moves.
+     *
+     * @param player current player whose pieces are being tested (PLAYER or ENEMY)
+     * @return array of all possible turns for the player, or null
+     */
+    public CheckersMove[] getLegalTurns(int player)
+    {
+        if (player != PLAYER && player != ENEMY)
         {
-            for (int col = row % 2; col < 8; col += 2)
-            {
-                if (board[row][col] == player || board[row][col] == playerKing)
-                {
-                    testSurroundingMoves(player, row, col, 2, moves);
-                }
-            }
+            return null;
         }
 
-        //
-        // If any jump moves were found, then the user must jump, so we don't
-        // add any regular moves.  However, if no jumps were found, check for
-        // any legal regular moves.  Look at each playable square on the board.
-        // If that square contains one of the player's pieces, look at a possible
-        // move in each of the four directions from that square.  If there is
-        // a legal move in that direction, put it in the moves vector.
-        //
-        if (moves.isEmpty())
+        int[] moves = new int[AISearch.MAX_MOVES];
+        int[] captures = new int[AISearch.MAX_MOVES];
+
+        return unpackMoves(moves, captures, getLegalTurns(player, moves, captures, 0));
+    }
+
+    /**
+     * Writes the legal moves for the specified player into the given arrays
+     * as PackedMoves, each one a complete turn.  A series jump is a single
+     * move, from the square the piece starts on to the square it finally
+     * lands on, with the squares of the jumped pieces in captures; there is
+     * one move for every different path.  The arrays belong to the caller,
+     * so generating moves does not allocate anything.
+     *
+     * <p> Moves are in the same order the single steps would be found in:
+     * pieces in square order, each piece's jumps in the order up-left,
+     * up-right, down-left, down-right, and each jump's continuations in the
+     * same order after it.
+     *
+     * @param player current player whose pieces are being tested (PLAYER or ENEMY)
+     * @param moves array receiving the packed moves
+     * @param captures array receiving the mask of captured squares of each
+     *                 move (0 for a regular move), at the same index
+     * @param start index of the first move to write
+     * @return number of legal turns written, 0 if none
+     */
+    public int getLegalTurns(int player, int[] moves, int[] captures, int start)
+    {
+        int jumpers = getJumpers(player);
+
+        if (jumpers == 0)
         {
-            for (int row = 0; row < 8; row++)
-            {
-                for (int col = row % 2; col < 8; col += 2)
-                {
-                    if (board[row][col] == player || board[row][col] == playerKing)
-                    {
-                        testSurroundingMoves(player, row, col, 1, moves);
-                    }
-                }
-            }
+            int count = generateMoves(player, ~0, false, moves, start);
+            Arrays.fill(captures, start, start + count, 0);
+
+            return count;
         }
 
-        //
-        // If no legal moves have been found, return null.  Otherwise, create
-        // an array just big enough to hold all the legal moves, copy the
-        // legal moves from the vector into the array, and return the array.
-        //
-        if (moves.isEmpty())
+        int opponent = (player == PLAYER) ? enemyPieces : playerPieces;
+        int end = start;
+
+        while (jumpers != 0)
         {
-            moveArray = null;
+            int square = Integer.numberOfTrailingZeros(jumpers);
+            int bit = 1 << square;
+            jumpers &= jumpers - 1;
+
+            // the jumping piece is lifted off the board, so it leaves its square empty
+            int empty = ~(playerPieces | enemyPieces) | bit;
+            end = addJumps(moves, captures, end, player, square, square,
+                    (kings & bit) != 0, opponent, empty, 0, 0);
         }
-        else
+
+        return end - start;
+    }
+
+    /**
+     * Called by getLegalTurns() to follow every series jump from a square,
+     * adding one move for each complete path.
+     *
+     * @param moves array receiving the packed moves
+     * @param captures array receiving the captured squares of each move
+     * @param index index of the next move to write
+     * @param player player making the jumps
+     * @param origin square the piece started the turn on
+     * @param square square the piece is on now
+     * @param king true if the piece is (or has become) a king
+     * @param opponent opponent pieces not jumped yet
+     * @param empty empty squares, including those of the jumped pieces
+     * @param captured squares of the pieces jumped so far
+     * @param jumps number of jumps made so far
+     * @return index of the next move to write afterwards
+     */
+    private int addJumps(int[] moves, int[] captures, int index, int player,
+                         int origin, int square, boolean king, int opponent,
+                         int empty, int captured, int jumps)
+    {
+        boolean jumped = false;
+
+        // men only move forward: up the board for PLAYER, down for ENEMY
+        for (int direction = firstDirection(player, king);
+             direction <= lastDirection(player, king); direction++)
         {
-            moveArray = new CheckersMove[moves.size()];
+            int over = Bitboard.JUMPED[direction][square];
+
+            // an edge of the board leaves nothing to jump over
+            if ((opponent & over) == 0)
+            {
+                continue;
+            }
+
+            int landSquare = Bitboard.JUMP_LANDING[direction][square];
+            int land = 1 << landSquare;
 
-            for (int i = 0; i < moves.size(); i++)
+            if ((empty & land) == 0)
             {
-                moveArray[i] = moves.elementAt(i);
+                continue;
             }
+
+            jumped = true;
+            index = addJumps(moves, captures, index, player, origin, landSquare,
+                    king || (land & crownRow(player)) != 0,
+                    opponent & ~over, empty | over, captured | over, jumps + 1);
         }
 
-        return moveArray;
+        if (!jumped && jumps > 0)
+        {
+            int flags = PackedMove.JUMP;
+
+            if (king && (kings & (1 << origin)) == 0)
+            {
+                flags |= PackedMove.PROMOTE;
+            }
+
+            moves[index] = PackedMove.encode(origin, square, flags, jumps);
+            captures[index] = captured;
+            index++;
+        }
+
+        return index;
+    }
+
+    /**
+     * Returns whether any piece of the specified player can jump, in which
+     * case its legal moves are all jumps.
+     *
+     * @param player PLAYER or ENEMY
+     * @return true if the player has a jump
+     */
+    boolean canJump(int player)
+    {
+        return getJumpers(player) != 0;
+    }
+
+    /**
+     * Returns the pieces of the specified player that can jump.
+     *
+     * @param player current player whose pieces are being tested
+     * @return mask of the squares of the pieces that can jump
+     */
+    private int getJumpers(int player)
+    {
+        int own = (player == PLAYER) ? playerPieces : enemyPieces;
+        int opponent = (player == PLAYER) ? enemyPieces : playerPieces;
+        int empty = ~(playerPieces | enemyPieces);
+        int upMovers = (player == PLAYER) ? own : (own & kings);
+        int downMovers = (player == ENEMY) ? own : (own & kings);
+
+        return (upMovers & (Bitboard.shiftSE(opponent & Bitboard.shiftSE(empty))
+                        | Bitboard.shiftSW(opponent & Bitboard.shiftSW(empty))))
+                | (downMovers & (Bitboard.shiftNE(opponent & Bitboard.shiftNE(empty))
+                        | Bitboard.shiftNW(opponent & Bitboard.shiftNW(empty))));
     }
 
     /**
      * Gets the legal move for a given PLAYER piece.  Will not work for
      * computer pieces.  Called for the purpose of highlighting available
-     * moves when a given user piece has been selected.
+     * moves when a given user piece has been selected.  The piece's jumps are
+     * returned if it has any, otherwise its regular moves.
      *
      * @param row row of the selected piece to test
      * @param col col of the selected piece to test
@@ -255,196 +728,260 @@ public class GameBoard
      */
     public CheckersMove[] getLegalMoves(int row, int col)
     {
+        int[] moves = new int[4];
 
-        CheckersMove[] moveArray;
-        Vector<CheckersMove> moves = new Vector<CheckersMove>();  // Moves will be stored in this vector.
+        return unpackMoves(moves, null, generateMoves(PLAYER,
+                1 << Bitboard.square(row, col), false, moves, 0));
+    }
 
-        // check for jumps first
-        testSurroundingMoves(PLAYER, row, col, 2, moves);
+    /**
+     * Return a list of the legal jumps that the specified player can
+     * make starting from the specified row and column.  If no such
+     * jumps are possible, null is returned.  The same bitboard logic
+     * as the getLegalMoves() method is used, restricted to one square.
+     *
+     * @param player identifies which player's piece is being tested
+     * @param row the row of the piece being tested
+     * @param col the row of the piece being tested
+     * @return array of possible jump moves for the given piece
+     */
+    public CheckersMove[] getLegalJumpsFrom(int player, int row, int col) {
 
-        // check for single moves if there are no jumps
-        if (moves.isEmpty())
-        {
-            testSurroundingMoves(PLAYER, row, col, 1, moves);
+        if (player != PLAYER && player != ENEMY) {
+            return null;
         }
 
-        if (moves.isEmpty())
+        int[] moves = new int[4];
+
+        return unpackMoves(moves, null, generateMoves(player,
+                1 << Bitboard.square(row, col), true, moves, 0));
+    }
+
+    /**
+     * Shared bitboard move generator for getLegalMoves(), getLegalTurns()
+     * and getLegalJumpsFrom().  Only the player's pieces inside the movers
+     * mask are considered, which lets the same code generate moves for the
+     * whole board or for a single piece.  Every move is a single step, a
+     * jump being one jump only.
+     *
+     * <p> All four directions are tested for every piece at once by shifting
+     * the bitboards.  Men may only use the two forward directions (up the
+     * board for PLAYER, down for ENEMY), kings may use all four.
+     *
+     * @param player current player whose pieces are being tested
+     * @param movers mask of squares whose pieces may move
+     * @param jumpsOnly true to skip regular moves when no jumps are found
+     * @param moves array receiving the packed moves
+     * @param start index of the first move to write
+     * @return number of moves written, 0 if none
+     */
+    private int generateMoves(int player, int movers, boolean jumpsOnly,
+                              int[] moves, int start)
+    {
+        int own = ((player == PLAYER) ? playerPieces : enemyPieces) & movers;
+        int opponent = (player == PLAYER) ? enemyPieces : playerPieces;
+        int empty = ~(playerPieces | enemyPieces);
+        int upMovers = (player == PLAYER) ? own : (own & kings);
+        int downMovers = (player == ENEMY) ? own : (own & kings);
+
+        //
+        // First, check for any possible jumps.  For each direction, a piece
+        // can jump if the neighboring square holds an opponent piece and the
+        // square beyond it is empty.  The shifts run backwards from the
+        // landing squares to find every piece that can make that jump.
+        //
+        int moveSize = 2;
+        int upLeft = upMovers & Bitboard.shiftSE(opponent & Bitboard.shiftSE(empty));
+        int upRight = upMovers & Bitboard.shiftSW(opponent & Bitboard.shiftSW(empty));
+        int downLeft = downMovers & Bitboard.shiftNE(opponent & Bitboard.shiftNE(empty));
+        int downRight = downMovers & Bitboard.shiftNW(opponent & Bitboard.shiftNW(empty));
+
+        //
+        // If any jump moves were found, then the user must jump, so we don't
+        // add any regular moves.  However, if no jumps were found, check for
+        // pieces with an empty neighboring square in any legal direction.
+        //
+        if ((upLeft | upRight | downLeft | downRight) == 0 && !jumpsOnly)
         {
-            // return null if no moves are found
-            moveArray = null;
+            moveSize = 1;
+            upLeft = upMovers & Bitboard.shiftSE(empty);
+            upRight = upMovers & Bitboard.shiftSW(empty);
+            downLeft = downMovers & Bitboard.shiftNE(empty);
+            downRight = downMovers & Bitboard.shiftNW(empty);
         }
-        else
+
+        //
+        // Each set bit in the direction masks is one legal move.  Pieces are
+        // visited in square order, and each piece's moves are added in the
+        // order up-left, up-right, down-left, down-right, which matches the
+        // scan order of the original board[][] implementation.
+        //
+        int flags = (moveSize == 2) ? PackedMove.JUMP : 0;
+        int[][] targets = (moveSize == 2) ? Bitboard.JUMP_LANDING : Bitboard.NEIGHBOR;
+        int pieces = upLeft | upRight | downLeft | downRight;
+        int index = start;
+
+        while (pieces != 0)
         {
-            moveArray = new CheckersMove[moves.size()];
+            int square = Integer.numberOfTrailingZeros(pieces);
+            int bit = 1 << square;
+            int crownSquares = ((kings & bit) != 0) ? 0 : crownRow(player);
+            pieces &= pieces - 1;
 
-            // copy the vector into an array of possible moves
-            for (int i = 0; i < moves.size(); i++)
+            if ((upLeft & bit) != 0)
             {
-                moveArray[i] = moves.elementAt(i);
+                moves[index++] = packStep(square, targets[Bitboard.UP_LEFT][square],
+                        flags, crownSquares);
+            }
+            if ((upRight & bit) != 0)
+            {
+                moves[index++] = packStep(square, targets[Bitboard.UP_RIGHT][square],
+                        flags, crownSquares);
+            }
+            if ((downLeft & bit) != 0)
+            {
+                moves[index++] = packStep(square, targets[Bitboard.DOWN_LEFT][square],
+                        flags, crownSquares);
+            }
+            if ((downRight & bit) != 0)
+            {
+                moves[index++] = packStep(square, targets[Bitboard.DOWN_RIGHT][square],
+                        flags, crownSquares);
             }
         }
 
-        return moveArray;
+        return index - start;
     }
 
     /**
-     * Test all the squares around a selected piece at (oldRow, oldCol) at the
-     * interval given by moveSize.  If moveSize is 1, it checks for moves one
-     * square away; if moveSize is 2, it checks for jumps (2 squares away).
-     * Legal moves are added to the vector passed in through "moves".
+     * Called by generateMoves() to pack a single step.
      *
-     * @param player identifies which player's piece is being tested
-     * @param oldRow row of the game piece being tested
-     * @param oldCol col of the game piece being tested
-     * @param moveSize distance (in game squares) to check for legal moves
-     * @param moves a vector passed in to add legal moves to
+     * @param fromSquare square the piece is currently at
+     * @param toSquare square the piece is moving to
+     * @param flags JUMP for a jump, 0 for a regular move
+     * @param crownSquares squares on which the piece is crowned (none for a king)
+     * @return the packed move
      */
-    private void testSurroundingMoves (int player, int oldRow, int oldCol,
-                                       int moveSize, Vector<CheckersMove> moves)
+    private static int packStep(int fromSquare, int toSquare, int flags,
+                                int crownSquares)
     {
-        //
-        // Scan the surrounding moves, starting with the top left, and going
-        // down in left-right fashion.
-        //
-        for (int row = -moveSize; row <= moveSize; row += 2 * moveSize)
+        if (((1 << toSquare) & crownSquares) != 0)
         {
-            for (int col = -moveSize; col <= moveSize; col += 2 * moveSize)
-            {
-                if (
-                    (
-                        (moveSize == 1) &&
-                        canMove(player, oldRow, oldCol, oldRow + row, oldCol + col)
-                    ) || (
-                        (moveSize == 2) &&
-                        canJump(player, oldRow, oldCol, oldRow + row, oldCol + col)
-                    )
-                )
-                {
-                    moves.add(new CheckersMove(oldRow, oldCol, oldRow + row, oldCol + col));
-                }
-            }
+            flags |= PackedMove.PROMOTE;
         }
+
+        return PackedMove.encode(fromSquare, toSquare, flags, PackedMove.isJump(flags) ? 1 : 0);
     }
 
     /**
-     * Return a list of the legal jumps that the specified player can
-     * make starting from the specified row and column.  If no such
-     * jumps are possible, null is returned.  The logic is similar
-     * to the logic of the getLegalMoves() method.
+     * Converts packed moves to a new CheckersMove array, the form used by
+     * the game and by doRecursiveAI.
      *
-     * @param player identifies which player's piece is being tested
-     * @param row the row of the piece being tested
-     * @param col the row of the piece being tested
-     * @return array of possible jump moves for the given piece
+     * @param moves packed moves
+     * @param captures captured squares of each move, or null for single steps
+     * @param count number of moves
+     * @return array of the moves, or null if count is 0
      */
-    public CheckersMove[] getLegalJumpsFrom(int player, int row, int col) {
-
-        if (player != PLAYER && player != ENEMY) {
+    private CheckersMove[] unpackMoves(int[] moves, int[] captures, int count)
+    {
+        if (count == 0)
+        {
             return null;
         }
 
-        int playerKing = (player == PLAYER) ? PLAYER_KING : ENEMY_KING;
+        CheckersMove[] moveArray = new CheckersMove[count];
 
-        Vector<CheckersMove> moves = new Vector<>();  // The legal jumps will be stored in this vector.
-
-        if (board[row][col] == player || board[row][col] == playerKing) {
-            testSurroundingMoves(player, row, col, 2, moves);
+        for (int i = 0; i < count; i++)
+        {
+            moveArray[i] = new CheckersMove(0, 0, 0, 0);
+            unpackMove(moves[i], (captures != null) ? captures[i] : 0, moveArray[i]);
         }
 
-        if (moves.isEmpty()) {
-            return null;
-        } else {
-            CheckersMove[] moveArray = new CheckersMove[moves.size()];
-            for (int i = 0; i < moves.size(); i++)
-                moveArray[i] = (CheckersMove)moves.elementAt(i);
-            return moveArray;
-        }
+        return moveArray;
     }
 
     /**
-     * This is called by the two previous methods to check whether the
-     * player can legally jump from (r1,c1) to (r3,c3).  It is assumed
-     * that the player has a piece at (r1,c1), that (r3,c3) is a position
-     * that is 2 rows and 2 columns distant from (r1,c1) and that
-     * (r2,c2) is the square between (r1,c1) and (r3,c3).
+     * Fills in a CheckersMove from a packed move generated on the current
+     * position.  For a complete turn the path is worked out again from the
+     * captured squares, so the move can be shown one jump at a time.
      *
-     * @param player identify which player's piece is being tested
-     * @param r1 row the moving piece is currently at
-     * @param c1 col the moving piece is currently at
-     * @param r3 row to test if the piece can move to
-     * @param c3 col to test if the piece can move to
-     * @return true if the move is a legal jump, false if not
+     * @param move packed move
+     * @param captured squares the move captures, or 0 for a single step
+     * @param target move to fill in
      */
-    private boolean canJump(int player, int r1, int c1, int r3, int c3) {
-
-        boolean jumpFound = false;
-        int r2 = (r1 + r3) / 2;
-        int c2 = (c1 + c3) / 2;
+    void unpackMove(int move, int captured, CheckersMove target)
+    {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        target.set(Bitboard.row(from), Bitboard.col(from), Bitboard.row(to), Bitboard.col(to));
 
-        if (
-            (r3 >= 0 && r3 < 8 && c3 >= 0 && c3 < 8) &&
-            (board[r3][c3] == EMPTY)
-        ) {
-            if (player == PLAYER) {
-                if (!(board[r1][c1] == PLAYER && r3 > r1) &&
-                        (board[r2][c2] == ENEMY || board[r2][c2] == ENEMY_KING))
-                {
-                    jumpFound = true;
-                }
-            }
-            else {
-                if (!(board[r1][c1] == ENEMY && r3 < r1) &&
-                        (board[r2][c2] == PLAYER || board[r2][c2] == PLAYER_KING))
-                {
-                    jumpFound = true;
-                }
-            }
+        if (captured != 0)
+        {
+            int player = ((playerPieces & (1 << from)) != 0) ? PLAYER : ENEMY;
+            target.pathLength = PackedMove.jumps(move);
+            target.captured = captured;
+            findPath(target.getPath(), player, from, to, (kings & (1 << from)) != 0,
+                    captured, ~(playerPieces | enemyPieces) | (1 << from), 0);
         }
-
-        return jumpFound;
     }
 
     /**
-     * This is called by the getLegalMoves() method to determine whether
-     * the player can legally move from (r1,c1) to (r2,c2).  It is
-     * assumed that (r1,r2) contains one of the player's pieces and
-     * that (r2,c2) is a neighboring square.
+     * Called by unpackMove() to find the squares a series jump lands on,
+     * jumping only the given pieces.  Moves that jump the same pieces and end
+     * on the same square lead to the same position, so any such path will do.
      *
-     * @param player identifies which player's piece is being tested
-     * @param r1 row the piece is currently at
-     * @param c1 col the piece is currently at
-     * @param r2 row being tested as the current piece's target location
-     * @param c2 col being tested as the current piece's target location
-     * @return true if the move is legal, false if it is not
+     * @param path array receiving the landing squares
+     * @param player player making the jumps
+     * @param square square the piece is on now
+     * @param target square the piece must end on
+     * @param king true if the piece is (or has become) a king
+     * @param remaining squares of the pieces still to jump
+     * @param empty empty squares
+     * @param depth number of jumps made so far
+     * @return true if a path was found
      */
-    private boolean canMove(int player, int r1, int c1, int r2, int c2)
+    private boolean findPath(int[] path, int player, int square, int target,
+                             boolean king, int remaining, int empty, int depth)
     {
-        boolean moveFound = false;
+        if (remaining == 0)
+        {
+            return square == target;
+        }
 
-        if (r2 >= 0 && r2 < 8 && c2 >= 0 && c2 < 8 && (board[r2][c2] == EMPTY))
+        for (int direction = firstDirection(player, king);
+             direction <= lastDirection(player, king); direction++)
         {
-            if (player == PLAYER) {
-                if (!(board[r1][c1] == PLAYER && r2 > r1))
-                {
-                    moveFound = true;
-                }
+            int over = Bitboard.JUMPED[direction][square];
+
+            if ((remaining & over) == 0)
+            {
+                continue;
             }
-            else {
-                if (!(board[r1][c1] == ENEMY && r2 < r1))
+
+            int landSquare = Bitboard.JUMP_LANDING[direction][square];
+            int land = 1 << landSquare;
+
+            if ((empty & land) != 0)
+            {
+                path[depth] = landSquare;
+
+                if (findPath(path, player, landSquare, target,
+                        king || (land & crownRow(player)) != 0,
+                        remaining & ~over, empty | over, depth + 1))
                 {
-                    moveFound = true;
+                    return true;
                 }
             }
         }
 
-        return moveFound;
+        return false;
     }
 
     /**
      * Recursively tests all possible moves, up to maxLevels deep.  In other
      * words, if maxLevels is 4, all possible moves up to 4 turns in the
-     * future will be analyzed.  Series jump moves do not count against the
-     * levelsDeep, as they have limited branches and are essentially "1 turn".
+     * future will be analyzed.  The moves tested are complete turns from
+     * getLegalTurns(), so a series jump is one move and counts as 1 turn.
      *
      * <p> For each recursive call, a hypothetical testBoard is created to
      * play out possible scenarios an get the next set of legal moves.
@@ -457,7 +994,7 @@ public class GameBoard
      * the previous recursive call.
      *
      * @param originalBoard GameBoard instance with the starting state for the recursive tests.
-     * @param prevMove Previous CheckersMove representing the move that lead to the current game state, if applicable.
+     * @param prevMove Previous CheckersMove representing the move that lead to the current game state, or a move with the same source and target at the root call.
      * @param levelsDeep Integer value indicating the current recursion depth, should start at 0 at the root call.
      * @param player One of the enumerated player values indicating with player's turn it is for this move test.
      * @return move with the best score for the current player (with rows/cols)
@@ -467,41 +1004,16 @@ public class GameBoard
                                     int player)
     {
         AIMoveTest bestScore = new AIMoveTest(player == ENEMY);
-        AIMoveTest currScore = new AIMoveTest(player == ENEMY);
+        AIMoveTest currScore;
         GameBoard testBoard = new GameBoard(originalBoard);
         int nextPlayer = (player == ENEMY) ? PLAYER : ENEMY;
 
-        if (prevMove.fromRow != prevMove.toRow)
+        // a series jump can end on the row it started from, but is never empty
+        if (prevMove.fromRow != prevMove.toRow || prevMove.isJump())
         {
             testBoard.makeMove(prevMove);
         }
 
-        CheckersMove[] legalMoves = testBoard.getLegalMoves(player);
-
-        //
-        // If the previous move was a jump, the same player might have another
-        // jump.  Check for valid jumps, and if any are found, switch back
-        // to the same player and set the legal moves to the jumps for the
-        // piece that just did the previous jump
-        //
-        if (prevMove.isJump())
-        {
-            CheckersMove[] opponentMoves = testBoard.getLegalJumpsFrom(nextPlayer,
-                    prevMove.toRow, prevMove.toCol);
-
-            if (opponentMoves != null)
-            {
-                player = nextPlayer;
-                nextPlayer = (player == ENEMY) ? PLAYER : ENEMY;
-                legalMoves = opponentMoves;
-                bestScore.setDefaultScore(player == ENEMY);
-                currScore.setDefaultScore(player == ENEMY);
-                levelsDeep--;
-            }
-
-            opponentMoves = null;
-        }
-
         //
         // Once the maximum number of turns to look into the future has been
         // reached, get the ratio of red:black pieces and recursively return
@@ -510,8 +1022,13 @@ public class GameBoard
         if (levelsDeep > maxLevels)
         {
             bestScore.score = testBoard.getBoardScore();
+            return bestScore;
         }
-        else if (legalMoves != null)
+
+        // the leaves never look at the legal moves, so only generate them here
+        CheckersMove[] legalMoves = testBoard.getLegalTurns(player);
+
+        if (legalMoves != null)
         {
             //
             // With the array of legal moves, recursively check each move
@@ -550,60 +1067,78 @@ public class GameBoard
     }
 
     /**
-     * Counts the number of black and red pieces, and returns a ratio
-     * of red:black pieces.  Called by doRecursiveAI to test end scenarios.
-     * In the case of no pieces, the board is given a large score for a win
-     * (to make it very desirable), or a very low score for a lose (to make
-     * it very undesirable).
+     * Scores the position for the computer with the board's Evaluator (see
+     * setEvaluator()).  Called by doRecursiveAI and AISearch to test end
+     * scenarios.  By default the score is the ratio of red:black pieces
+     * (see MaterialRatioEvaluator).
      *
-     * @return ratio of red/black pieces
+     * @return 100 for a computer win, -100 for a player win, otherwise a score between
      */
-    private double getBoardScore()
+    double getBoardScore()
     {
-        int playerCount = 0;
-        int enemyCount = 0;
-        double scoreRatio;
+        return evaluator.evaluate(this);
+    }
 
-        // count pieces for each player left on the board
-        for (int row = 0; row < 8; row++)
-        {
-            for (int col = row % 2; col < 8; col += 2)
-            {
-                switch(board[row][col])
-                {
-                    case PLAYER_KING:
-                        playerCount += 2;
-                        break;
-                    case PLAYER:
-                        playerCount++;
-                        break;
-                    case ENEMY_KING:
-                        enemyCount += 2;
-                        break;
-                    case ENEMY:
-                        enemyCount++;
-                        break;
-                }
-            }
-        }
+    /**
+     * Returns the squares holding a player's pieces, men and kings.
+     *
+     * @param player PLAYER or ENEMY
+     * @return mask of squares (numbered as in Bitboard)
+     */
+    int getPieces(int player)
+    {
+        return (player == PLAYER) ? playerPieces : enemyPieces;
+    }
 
-        // avoid division by zero
-        if (playerCount > 0)
-        {
-            scoreRatio = ((double) enemyCount) / ((double) playerCount);
-        }
-        // Computer (enemy) wins, set to large (desirable) value
-        else
-        {
-            scoreRatio = 100;
-        }
+    /**
+     * Returns the squares holding a king of either side.
+     *
+     * @return mask of squares (numbered as in Bitboard)
+     */
+    int getKings()
+    {
+        return kings;
+    }
 
-        // if player wins, set to small (undesirable) value
-        if (enemyCount < 1)
-        {
-            scoreRatio = -100;
-        }
+    /**
+     * Returns how many men (pieces that are not kings) a player has.
+     *
+     * @param player PLAYER or ENEMY
+     * @return number of men on the board
+     */
+    int getMen(int player)
+    {
+        return (player == PLAYER) ? playerMen : enemyMen;
+    }
+
+    /**
+     * Returns how many kings a player has.
+     *
+     * @param player PLAYER or ENEMY
+     * @return number of kings on the board
+     */
+    int getKingCount(int player)
+    {
+        return (player == PLAYER) ? playerKings : enemyKings;
+    }
+
+    /**
+     * Counts the regular (non-jump) moves a player's pieces have, whether or
+     * not a jump is available.  Used by evaluators as a measure of mobility.
+     *
+     * @param player PLAYER or ENEMY
+     * @return number of regular moves
+     */
+    int countMoves(int player)
+    {
+        int own = (player == PLAYER) ? playerPieces : enemyPieces;
+        int empty = ~(playerPieces | enemyPieces);
+        int upMovers = (player == PLAYER) ? own : (own & kings);
+        int downMovers = (player == ENEMY) ? own : (own & kings);
 
-        return scoreRatio;
+        return Integer.bitCount(upMovers & Bitboard.shiftSE(empty))
+                + Integer.bitCount(upMovers & Bitboard.shiftSW(empty))
+                + Integer.bitCount(downMovers & Bitboard.shiftNE(empty))
+                + Integer.bitCount(downMovers & Bitboard.shiftNW(empty));
     }
 }
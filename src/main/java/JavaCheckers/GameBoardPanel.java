@@ -3,7 +3,6 @@ package JavaCheckers;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.awt.image.RescaleOp;
 import java.util.ArrayList;
 
 /**
@@ -24,11 +23,48 @@ class GameBoardPanel extends JPanel
 
     /**
      * Target time in milliseconds it should take for a piece to animate
-     * during a single move.  Used to calculate pixel move size based
-     * on machine speed.
+     * during a single move.  The sprite's position is worked out from the
+     * time since the move started, so a move takes this long however fast
+     * the machine draws.
      */
     static final double TARGET_SPEED = 300;
 
+    /**
+     * Milliseconds between animation frames, about 60 frames per second
+     */
+    static final int FRAME_DELAY_MS = 16;
+
+    /**
+     * Number of opacity levels a jumped piece fades through
+     */
+    static final int FADE_STEPS = 64;
+
+    /**
+     * Composites drawing at each opacity level of the fade, from clear
+     * (index 0) to opaque (index FADE_STEPS - 1).  Made once so that no
+     * frame has to create one.
+     */
+    static final AlphaComposite[] FADE_COMPOSITES = new AlphaComposite[FADE_STEPS];
+
+    static
+    {
+        for (int i = 0; i < FADE_STEPS; i++)
+        {
+            FADE_COMPOSITES[i] = AlphaComposite.getInstance(AlphaComposite.SRC_OVER,
+                    (float) i / (FADE_STEPS - 1));
+        }
+    }
+
+    /**
+     * Color of the outline around the squares the selected piece can move to
+     */
+    static final Color MOVE_HIGHLIGHT = new Color(0, 153, 255);
+
+    /**
+     * Fully transparent color, used to clear jumpPieceImage
+     */
+    static final Color CLEAR = new Color(0, 0, 0, 0);
+
     /**
      * A cast from the paintComponent graphics object.  Used for speed
      * efficiency by avoiding calling the new operator each animation cycle
@@ -36,16 +72,26 @@ class GameBoardPanel extends JPanel
     Graphics2D g2d;
 
     /**
-     * The source/target location of the piece being animated
+     * The source/target location of the piece being animated.  The same
+     * object is reused for every move.
      */
-    CheckersMove animMove;
+    final CheckersMove animMove = new CheckersMove(1, 0, 1, 0);
 
     /**
-     * A temporary array of all the pieces currently on the board and their
-     * locations.  Used for efficiency during animations to avoid having
-     * to scan the entire board.
+     * Image of the piece being jumped, faded out as the jumping piece passes
+     * over it, and the graphics drawing into it.  Made once and redrawn for
+     * every jump.
      */
-    ArrayList<GamePiece> pieces;
+    final BufferedImage jumpPieceImage = new BufferedImage(50, 50, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D jumpPieceGraphics = jumpPieceImage.createGraphics();
+
+    /**
+     * All the pieces currently on the board and their locations.  Used for
+     * efficiency during animations to avoid having to scan the entire
+     * board.  The list and its GamePiece objects are kept for the life of
+     * the panel and refilled by getPiecePositions().
+     */
+    final ArrayList<GamePiece> pieces = new ArrayList<GamePiece>(24);
 
     /**
      * Index of the piece being animated in the ArrayList pieces
@@ -53,72 +99,94 @@ class GameBoardPanel extends JPanel
     int animIndex;
 
     /**
-     * Animation speed multiplier to adjust for speed of different machines.
+     * Fires on the event dispatch thread to draw each frame of the move
+     * being animated.  Runs only while a move is animated.
+     */
+    Timer animationTimer;
+
+    /**
+     * System.nanoTime() at which the current animation started
+     */
+    long animStart;
+
+    /**
+     * Called when the current animation has finished, or null
      */
-    double gameSpeed;
+    Runnable animDone;
+
+    /**
+     * Legal moves of the selected piece, outlined by highlightMoveSquares().
+     * Worked out again only when the selection or game.legalMoves changes,
+     * which highlightRow/highlightCol/highlightSource record.
+     */
+    CheckersMove[] highlightMoves;
+    int highlightRow = -1;
+    int highlightCol = -1;
+    CheckersMove[] highlightSource;
+
+    /**
+     * The board drawn over the part of the background it covers, in the
+     * screen's own format so drawing it is a plain copy, and the
+     * configuration it was made for
+     */
+    BufferedImage boardLayer;
+    GraphicsConfiguration boardLayerConfig;
 
     GameBoardPanel(CheckersGame currentGame) {
         game = currentGame;
+        animationTimer = new Timer(FRAME_DELAY_MS, e -> nextFrame());
+        animationTimer.setCoalesce(true);
+
+        // the board covers the whole panel, so nothing behind it is repainted
+        setOpaque(true);
+
+        jumpPieceGraphics.setColor(CLEAR);
     }
 
     /**
-     * Runs a test animation of 70 frames to clock how fast the computer
-     * can complete it.  The first 10 frames are to "warm the system up" so
-     * everything is in memory and ready to go.
+     * Creates an opaque image in the format of the screen the component is
+     * shown on, or a plain RGB image if it is not shown yet, to pre-render
+     * parts of the window that do not change.  Java2D keeps such images in
+     * video memory when it can, so drawing them is a fast copy however the
+     * images they were drawn from were stored.
      *
-     * <p> This is used to set the gameSpeed multiplier so that
-     * different speed computers can run the animation sequences at
-     * similar speeds.
+     * @param component component the image will be drawn on
+     * @param width width of the image
+     * @param height height of the image
+     * @return the new image
      */
-    public void setGameSpeed()
+    static BufferedImage createLayer(Component component, int width, int height)
     {
-        long runTime;
-        long startTime = 0;
-
-        for (int i = 0; i < 70; i++)
-        {
-            if (i == 10)
-            {
-                startTime = System.currentTimeMillis();
-            }
-
-            paintImmediately(0, 0, 400, 400);
-        }
+        GraphicsConfiguration config = component.getGraphicsConfiguration();
 
-        runTime = System.currentTimeMillis() - startTime;
-        gameSpeed = runTime / TARGET_SPEED;
-
-        //
-        // Make sure the gameSpeed is within one move size (50) and above 0.
-        // A value of 0 would create an infinite loop, and a value > 50
-        // would move the pieces too far.  50 means no in between animation;
-        // pieces just appear at their destinations immediately.
-        //
-        if (gameSpeed < .001)
-        {
-            gameSpeed = .001;
-        }
-        if (gameSpeed > 50)
-        {
-            gameSpeed = 50;
-        }
-
-        System.out.println("Run Time: " + runTime);
-        System.out.println("GameSpeed: " + gameSpeed);
+        return (config != null)
+                ? config.createCompatibleImage(width, height, Transparency.OPAQUE)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
     }
 
     /**
-     * Repaints the game board panel. Called by animateMove or other
-     * methods, using the paintImmediately() method call (which in turn
-     * calls this) to ensure the repaint is done in the same order of
-     * execution (otherwise, animation errors can occur from bad
-     * synchronization).
+     * Repaints the parts of the game board panel that need it.  Only the
+     * squares that change are repainted while a move is animated (see
+     * nextFrame()) or a piece is selected (see repaintSelection()), and
+     * Swing clips the drawing to them.
      *
      * @param g the graphics object for the GameBoardPanel
      */
     public void paintComponent(Graphics g)
     {
-        g.drawImage(game.img_board, 0, 0, this);
+        if (boardLayer == null || boardLayerConfig != getGraphicsConfiguration())
+        {
+            boardLayer = createLayer(this, 400, 400);
+            boardLayerConfig = getGraphicsConfiguration();
+
+            // the board is slightly see-through, so the background shows
+            Graphics layer = boardLayer.getGraphics();
+            layer.drawImage(game.img_background, -getX(), -getY(), null);
+            layer.drawImage(game.img_board, 0, 0, null);
+            layer.dispose();
+        }
+
+        g.drawImage(boardLayer, 0, 0, null);
 
         if (game.gameInProgress)
         {
@@ -170,11 +238,12 @@ class GameBoardPanel extends JPanel
     public void fadeJumpedPiece(Graphics g)
     {
         g2d = (Graphics2D) g;
-        float[] newRGBA = {1f, 1f, 1f, game.jumpOpacity};
-        RescaleOp newOpacity = new RescaleOp(newRGBA, new float[4], null);
+        Composite oldComposite = g2d.getComposite();
+        int step = Math.round(game.jumpOpacity * (FADE_STEPS - 1));
 
-        g2d.drawImage(game.img_jumpPiece, newOpacity,
-                game.jumpedCol * 50, game.jumpedRow * 50);
+        g2d.setComposite(FADE_COMPOSITES[Math.max(0, Math.min(FADE_STEPS - 1, step))]);
+        g2d.drawImage(game.img_jumpPiece, game.jumpedCol * 50, game.jumpedRow * 50, null);
+        g2d.setComposite(oldComposite);
     }
 
     /**
@@ -187,10 +256,8 @@ class GameBoardPanel extends JPanel
      */
     public void highlightMoveSquares(Graphics g)
     {
-        g.setColor(new Color(0, 153, 255));
-
-        CheckersMove[] highlightMoves =
-                game.currGame.getLegalMoves(game.selectedRow, game.selectedCol);
+        updateHighlightMoves();
+        g.setColor(MOVE_HIGHLIGHT);
 
         for (CheckersMove m : highlightMoves)
         {
@@ -200,6 +267,98 @@ class GameBoardPanel extends JPanel
         g.setColor(Color.BLUE);
     }
 
+    /**
+     * Works out highlightMoves again if the selection or game.legalMoves
+     * has changed since they were last worked out.
+     */
+    void updateHighlightMoves()
+    {
+        if (game.selectedRow != highlightRow || game.selectedCol != highlightCol
+                || game.legalMoves != highlightSource)
+        {
+            highlightMoves = game.engine.getLegalMoves(game.selectedRow, game.selectedCol);
+            highlightRow = game.selectedRow;
+            highlightCol = game.selectedCol;
+            highlightSource = game.legalMoves;
+        }
+    }
+
+    /**
+     * Marks a square of the board to be repainted.
+     *
+     * @param row row of the square (0-7)
+     * @param col column of the square (0-7)
+     */
+    public void repaintSquare(int row, int col)
+    {
+        repaint(col * 50, row * 50, 50, 50);
+    }
+
+    /**
+     * Marks the squares that change when the user selects a piece to be
+     * repainted: the squares of the old and new selected pieces and the
+     * squares each of them can move to.
+     *
+     * @param oldRow row of the piece selected before, or -1 if none was
+     * @param oldCol column of the piece selected before
+     */
+    public void repaintSelection(int oldRow, int oldCol)
+    {
+        if (oldRow >= 0)
+        {
+            repaintSquare(oldRow, oldCol);
+        }
+        repaintHighlightMoves();
+
+        if (game.selectedRow >= 0)
+        {
+            repaintSquare(game.selectedRow, game.selectedCol);
+            updateHighlightMoves();
+            repaintHighlightMoves();
+        }
+    }
+
+    /**
+     * Marks every square that may be outlined or filled to help the user
+     * pick a move to be repainted: the selected square, the pieces that can
+     * move and the squares the selected piece can move to.  Called when the
+     * user's turn starts or ends, or highlighting is switched on or off.
+     */
+    public void repaintOutlines()
+    {
+        repaintHighlightMoves();
+
+        if (game.selectedRow >= 0)
+        {
+            repaintSquare(game.selectedRow, game.selectedCol);
+            updateHighlightMoves();
+            repaintHighlightMoves();
+        }
+
+        if (game.legalMoves != null)
+        {
+            for (CheckersMove m : game.legalMoves)
+            {
+                repaintSquare(m.fromRow, m.fromCol);
+            }
+        }
+    }
+
+    /**
+     * Marks the squares last outlined by highlightMoveSquares() to be
+     * repainted.
+     */
+    private void repaintHighlightMoves()
+    {
+        if (highlightMoves != null)
+        {
+            for (CheckersMove m : highlightMoves)
+            {
+                repaintSquare(m.toRow, m.toCol);
+            }
+        }
+    }
+
     /**
      * Called by paintComponent to draw all the game piece sprites
      * in their current locations.  Calls getPieceImage to check
@@ -210,9 +369,15 @@ class GameBoardPanel extends JPanel
     public void drawBoardPieces(Graphics g)
     {
         // draw game pieces on the board, uses king/single image accordingly
-        for (GamePiece p : pieces)
+        for (int i = 0; i < pieces.size(); i++)
         {
-            g.drawImage(getPieceImage(p.type), p.getX(), p.getY(), this);
+            GamePiece p = pieces.get(i);
+
+            // skip the pieces outside the area being repainted
+            if (g.hitClip(p.getX(), p.getY(), 50, 50))
+            {
+                g.drawImage(getPieceImage(p.type), p.getX(), p.getY(), this);
+            }
         }
     }
 
@@ -221,13 +386,14 @@ class GameBoardPanel extends JPanel
      * their types and positions.  This is stored in the member variable
      * ArrayList pieces for efficiency during animation (to prevent the entire
      * board from having to be scanned each frame).  Piece positions are read
-     * from the GameBoard object currGame.
+     * from the CheckersEngine object engine.  The GamePiece objects already
+     * in the list are reused.
      */
     public void getPiecePositions()
     {
         int x;
         int y;
-        pieces = new ArrayList<GamePiece>();
+        int count = 0;
 
         // draw game pieces on the board, uses king/single image accordingly
         for (int row = 0; row < 8; row++)
@@ -238,7 +404,7 @@ class GameBoardPanel extends JPanel
                 {
                     y = animMove.fromRow * 50;
                     x = animMove.fromCol * 50;
-                    animIndex = pieces.size();
+                    animIndex = count;
                 }
                 else
                 {
@@ -246,13 +412,28 @@ class GameBoardPanel extends JPanel
                     x = col * 50;
                 }
 
-                if (game.currGame.pieceAt(row, col) != GameBoard.EMPTY)
+                int type = game.engine.pieceAt(row, col);
+
+                if (type != GameBoard.EMPTY)
                 {
-                    pieces.add(new GamePiece(x, y, game.currGame.pieceAt(row, col)));
+                    if (count < pieces.size())
+                    {
+                        pieces.get(count).set(x, y, type);
+                    }
+                    else
+                    {
+                        pieces.add(new GamePiece(x, y, type));
+                    }
+                    count++;
                 }
             }
         }
 
+        // drop the pieces that have been captured since the last call
+        while (pieces.size() > count)
+        {
+            pieces.remove(pieces.size() - 1);
+        }
     }
 
     /**
@@ -264,7 +445,7 @@ class GameBoardPanel extends JPanel
      */
     public void resetAnimMove()
     {
-        animMove = new CheckersMove(1, 0, 1, 0);
+        animMove.set(1, 0, 1, 0);
     }
 
 
@@ -300,59 +481,160 @@ class GameBoardPanel extends JPanel
     }
 
     /**
-     * Animates a game piece between the fromRow/fromCol and toRow/toCol
-     * provided by move.  Calculates the pixel interval to move the sprite
-     * based on the gameSpeed determined by setGameSpeed().  Calls
-     * middlePanel.paintImmediately() to guarantee each successive frame
-     * is drawn (and not collapsed to one paint call) in the proper execution
-     * order.
+     * Animates the steps of a turn one after the other, such as each jump
+     * of a series jump (see animateMove()).
+     *
+     * @param steps single steps to make and animate, in order
+     * @param onFinished called once the last step has been animated
+     */
+    public void animateMoves(CheckersMove[] steps, Runnable onFinished)
+    {
+        animateSteps(steps, 0, onFinished);
+    }
+
+    /**
+     * Animates the steps of a turn from the given one on.
+     *
+     * @param steps single steps to make and animate, in order
+     * @param index first step to animate
+     * @param onFinished called once the last step has been animated
+     */
+    private void animateSteps(CheckersMove[] steps, int index, Runnable onFinished)
+    {
+        if (index == steps.length)
+        {
+            onFinished.run();
+            return;
+        }
+
+        animateMove(steps[index], () -> animateSteps(steps, index + 1, onFinished));
+    }
+
+    /**
+     * Returns whether a move is being animated.  The board ignores clicks
+     * until the animation is over.
+     *
+     * @return true while a move is being animated
+     */
+    public boolean isAnimating()
+    {
+        return animationTimer.isRunning();
+    }
+
+    /**
+     * Makes a move and starts animating a game piece between the
+     * fromRow/fromCol and toRow/toCol provided by move.  The move is made
+     * on the engine at once; the animation then runs from animationTimer
+     * on the event dispatch thread, taking TARGET_SPEED milliseconds, and
+     * this method returns without waiting for it.
      *
      * @param move contains source and target locations for the moved piece
+     * @param onFinished called on the event dispatch thread once the piece
+     *                   has reached its destination
      */
-    public void animateMove(CheckersMove move)
+    public void animateMove(CheckersMove move, Runnable onFinished)
     {
         // configure animation origin, destination, and direction
-        animMove = new CheckersMove(move.fromRow, move.fromCol,
-                move.toRow, move.toCol);
-        int xMoveSize = animMove.toCol - animMove.fromCol;
-        int yMoveSize = animMove.toRow - animMove.fromRow;
-        int moveSize = Math.abs(xMoveSize);
-        double moveBound;
+        animMove.set(move.fromRow, move.fromCol, move.toRow, move.toCol);
 
         // prepare jumped piece to be faded if needed
         if (move.isJump())
         {
             game.jumpedCol = (move.fromCol + move.toCol) / 2;
             game.jumpedRow = (move.fromRow + move.toRow) / 2;
-            game.img_jumpPiece = new BufferedImage(50, 50, BufferedImage.TYPE_INT_ARGB);
-            game.img_jumpPiece.getGraphics().drawImage(
-                    getPieceImage(game.currGame.pieceAt(game.jumpedRow, game.jumpedCol)),
+            // clear the last jumped piece, then draw this one over it
+            jumpPieceGraphics.setComposite(AlphaComposite.Src);
+            jumpPieceGraphics.fillRect(0, 0, 50, 50);
+            jumpPieceGraphics.setComposite(AlphaComposite.SrcOver);
+            jumpPieceGraphics.drawImage(
+                    getPieceImage(game.engine.pieceAt(game.jumpedRow, game.jumpedCol)),
                     0, 0, null);
+            game.img_jumpPiece = jumpPieceImage;
             game.jumpOpacity = 1;
         }
 
-        game.currGame.makeMove(move);
+        // clear the outlines drawn for the user, which the animation hides
+        if (game.waitingForInput)
+        {
+            repaintOutlines();
+        }
+
+        game.engine.makeMove(move);
         game.waitingForInput = false;
         getPiecePositions();
 
-        // run animation loop
-        moveBound = moveSize * 50 - moveSize * gameSpeed;
-        for (double i = 0; i < moveBound; i += moveSize * gameSpeed)
+        animDone = onFinished;
+        animStart = System.nanoTime();
+        animationTimer.start();
+        repaintSquare(move.fromRow, move.fromCol);
+        repaintSquare(move.toRow, move.toCol);
+    }
+
+    /**
+     * Draws the next frame of the move being animated.  The sprite is
+     * placed by how much of TARGET_SPEED has passed since the move started,
+     * and the jumped piece fades out over the same time.  When the time is
+     * up the animation ends and its onFinished callback is run.
+     */
+    void nextFrame()
+    {
+        double progress = Math.min(1, (System.nanoTime() - animStart) / (TARGET_SPEED * 1e6));
+        GamePiece piece = pieces.get(animIndex);
+
+        // repaint where the sprite was, where it is now, and the fading piece
+        repaint(piece.getX(), piece.getY(), 50, 50);
+        piece.x = (animMove.fromCol + (animMove.toCol - animMove.fromCol) * progress) * 50;
+        piece.y = (animMove.fromRow + (animMove.toRow - animMove.fromRow) * progress) * 50;
+        repaint(piece.getX(), piece.getY(), 50, 50);
+        if (game.img_jumpPiece != null)
+        {
+            game.jumpOpacity = (float) (1 - progress);
+            repaintSquare(game.jumpedRow, game.jumpedCol);
+        }
+
+        if (progress >= 1)
         {
-            pieces.get(animIndex).x += xMoveSize * gameSpeed;
-            pieces.get(animIndex).y += yMoveSize * gameSpeed;
-            game.middlePanel.paintImmediately(0, 0, 400, 400);
+            Runnable onFinished = animDone;
+            finishAnimation();
 
-            if (game.img_jumpPiece != null)
+            if (onFinished != null)
             {
-                game.jumpOpacity -= .02 * gameSpeed;
+                onFinished.run();
             }
         }
+    }
+
+    /**
+     * Stops the animation in progress, if any, leaving the moved piece on
+     * its destination, without running its onFinished callback.  Called
+     * when a new game is started, which also has to set
+     * game.waitingForInput again, since the callback would have.
+     */
+    public void stopAnimation()
+    {
+        if (isAnimating())
+        {
+            finishAnimation();
+        }
+    }
+
+    /**
+     * Stops the animation timer and resets the animation variables.
+     */
+    private void finishAnimation()
+    {
+        animationTimer.stop();
+        animDone = null;
+
+        // the piece may have been crowned, and the jumped piece is gone
+        repaintSquare(animMove.toRow, animMove.toCol);
+        if (game.img_jumpPiece != null)
+        {
+            repaintSquare(game.jumpedRow, game.jumpedCol);
+        }
 
-        // reset animation variables
         game.img_jumpPiece = null;
         resetAnimMove();
         getPiecePositions();
-        game.middlePanel.paintImmediately(0, 0, 400, 400);
     }
 }
\ No newline at end of file
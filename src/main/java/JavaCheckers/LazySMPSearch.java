@@ -0,0 +1,282 @@
+package JavaCheckers;
+
+/**
+ * LazySMPSearch searches one position on several threads at once using
+ * "Lazy SMP".  Every thread runs an ordinary iterative deepening AISearch
+ * of the same root position on its own copy of the board, and the threads
+ * only cooperate through a shared TranspositionTable.  The helper threads
+ * start at different depths and shuffle their move order, so they tend to
+ * search different parts of the tree, and the main thread finds much of
+ * its work already stored in the table.
+ *
+ * <p> The move returned is always the main thread's, so it is chosen the
+ * same way as by a single AISearch with a table; the helpers only change
+ * how fast it gets there.  Unlike AISearch.setParallel(), which splits the
+ * moves of the tree between threads, the result depends on the timing of
+ * the threads and can differ from one run to the next.
+ *
+ * @author Jason Hamilton
+ */
+public class LazySMPSearch
+{
+    /**
+     * Board being searched by the main thread
+     */
+    private final GameBoard board;
+
+    /**
+     * Table shared by all the threads
+     */
+    private final TranspositionTable table;
+
+    /**
+     * Endgame tablebase the threads probe, or null
+     */
+    private Tablebase tablebase;
+
+    /**
+     * True if the threads resolve captures at the leaves
+     */
+    private boolean quiescence;
+
+    /**
+     * Searches run by each thread; index 0 is the main thread (the caller)
+     */
+    private final AISearch[] searches;
+
+    /**
+     * Nanoseconds each thread spent on the last search
+     */
+    private final long[] elapsed;
+
+    /**
+     * Constructor.  Prepares a search of the given board with the given
+     * number of threads, counting the calling thread.
+     *
+     * @param gameBoard board to search; it is modified during the search and
+     *                  restored before search() returns
+     * @param transpositionTable table shared by the threads
+     * @param threads number of threads to search with, at least 1
+     */
+    public LazySMPSearch(GameBoard gameBoard, TranspositionTable transpositionTable,
+                         int threads)
+    {
+        board = gameBoard;
+        table = transpositionTable;
+        searches = new AISearch[Math.max(1, threads)];
+        elapsed = new long[searches.length];
+        searches[0] = new AISearch(gameBoard, transpositionTable);
+        searches[0].setAgesTable(false);
+    }
+
+    /**
+     * Makes every thread score the positions an endgame tablebase covers
+     * from the tablebase (see AISearch.setTablebase()).
+     *
+     * @param endgames tablebase to probe, or null to search every position
+     */
+    public void setTablebase(Tablebase endgames)
+    {
+        tablebase = endgames;
+        searches[0].setTablebase(endgames);
+    }
+
+    /**
+     * Makes every thread resolve pending captures before scoring a leaf
+     * (see AISearch.setQuiescence()).
+     *
+     * @param enabled true to search captures at the leaves
+     */
+    public void setQuiescence(boolean enabled)
+    {
+        quiescence = enabled;
+        searches[0].setQuiescence(enabled);
+    }
+
+    /**
+     * Makes the main thread report each level it finishes (see
+     * AISearch.setProgress()).
+     *
+     * @param listener told about each finished level, or null
+     */
+    public void setProgress(SearchProgress listener)
+    {
+        searches[0].setProgress(listener);
+    }
+
+    /**
+     * Ends the search in progress from another thread (see AISearch.stop()).
+     * The helper threads are stopped as soon as the main thread returns.
+     */
+    public void stop()
+    {
+        searches[0].stop();
+    }
+
+    /**
+     * Finds the best move for the given player within a time limit.  The
+     * helper threads are started, the main search runs on the calling
+     * thread, and the helpers are stopped as soon as it returns.
+     *
+     * @param player One of the enumerated player values indicating which player's turn it is
+     * @param maxLevels deepest search to try, as in GameBoard.maxLevels
+     * @param timeLimit milliseconds allowed for the search, 0 for no limit
+     * @return move with the best score for the current player (with rows/cols)
+     */
+    public AIMoveTest search(int player, int maxLevels, long timeLimit)
+    {
+        Thread[] helpers = new Thread[searches.length];
+        long start = System.nanoTime();
+
+        //
+        // Age the shared table once for the whole move, before any thread
+        // stores an entry, so that every thread's entries count as this
+        // search's when the table picks which ones to replace.
+        //
+        table.newSearch();
+
+        for (int i = 1; i < searches.length; i++)
+        {
+            // odd helpers skip the first level, then deepen one level at a time
+            AISearch helper = new AISearch(new GameBoard(board), table);
+            helper.setHelper(i & 1, i);
+            helper.setTablebase(tablebase);
+            helper.setQuiescence(quiescence);
+            searches[i] = helper;
+
+            int index = i;
+            helpers[i] = new Thread(() ->
+            {
+                helper.search(player, maxLevels, timeLimit);
+                elapsed[index] = System.nanoTime() - start;
+            }, "LazySMP-helper-" + i);
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+
+        AIMoveTest bestScore = searches[0].search(player, maxLevels, timeLimit);
+        elapsed[0] = System.nanoTime() - start;
+
+        for (int i = 1; i < searches.length; i++)
+        {
+            searches[i].stop();
+        }
+
+        for (int i = 1; i < searches.length; i++)
+        {
+            try
+            {
+                helpers[i].join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Returns the number of positions visited by all the threads in the last
+     * search.
+     *
+     * @return total node count
+     */
+    public long getNodes()
+    {
+        long nodes = 0;
+
+        for (AISearch search : searches)
+        {
+            if (search != null)
+            {
+                nodes += search.nodes;
+            }
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Returns the number of alpha-beta cutoffs made by all the threads in
+     * the last search.
+     *
+     * @return total cutoff count
+     */
+    long getCutoffs()
+    {
+        long cutoffs = 0;
+
+        for (AISearch search : searches)
+        {
+            if (search != null)
+            {
+                cutoffs += search.cutoffs;
+            }
+        }
+
+        return cutoffs;
+    }
+
+    /**
+     * Returns the number of positions all the threads in the last search
+     * scored from the tablebase.
+     *
+     * @return total tablebase hits
+     */
+    long getTablebaseHits()
+    {
+        long hits = 0;
+
+        for (AISearch search : searches)
+        {
+            if (search != null)
+            {
+                hits += search.tablebaseHits;
+            }
+        }
+
+        return hits;
+    }
+
+    /**
+     * Returns the deepest number of levels the main thread finished in the
+     * last search, which is the search the move came from.
+     *
+     * @return levels completed, or -1
+     */
+    int getLevelsCompleted()
+    {
+        return searches[0].levelsCompleted;
+    }
+
+    /**
+     * Returns the main search's summary (see AISearch.getSummary()),
+     * followed by the levels, nodes and nodes per second of each thread, as
+     * in "thread 1: levels 7, nodes 52000, nps 1040000".
+     *
+     * @return summary of the last search's statistics
+     */
+    public String getSummary()
+    {
+        StringBuilder summary = new StringBuilder(searches[0].getSummary());
+
+        for (int i = 0; i < searches.length; i++)
+        {
+            AISearch search = searches[i];
+
+            if (search != null)
+            {
+                long nps = (elapsed[i] > 0) ? search.nodes * 1000000000L / elapsed[i] : 0;
+                summary.append("; thread ").append(i)
+                        .append(": levels ").append(search.levelsCompleted)
+                        .append(", nodes ").append(search.nodes)
+                        .append(", nps ").append(nps);
+            }
+        }
+
+        return summary.toString();
+    }
+}
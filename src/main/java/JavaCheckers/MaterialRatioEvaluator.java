@@ -0,0 +1,59 @@
+package JavaCheckers;
+
+/**
+ * MaterialRatioEvaluator is the AI's original evaluation and the default:
+ * the ratio of computer to player pieces, with kings counting double.  A
+ * ratio rewards trading pieces when ahead, since each trade raises it.
+ *
+ * @author Jason Hamilton
+ */
+public class MaterialRatioEvaluator implements Evaluator
+{
+    /**
+     * Counts the number of black and red pieces, and returns a ratio
+     * of red:black pieces.  In the case of no pieces, the board is given a
+     * large score for a win (to make it very desirable), or a very low score
+     * for a lose (to make it very undesirable).
+     *
+     * @param board position to score
+     * @return ratio of red/black pieces
+     */
+    @Override
+    public double evaluate(GameBoard board)
+    {
+        // count pieces for each player left on the board, kings count double
+        int playerCount = board.getMen(GameBoard.PLAYER) + 2 * board.getKingCount(GameBoard.PLAYER);
+        int enemyCount = board.getMen(GameBoard.ENEMY) + 2 * board.getKingCount(GameBoard.ENEMY);
+        double scoreRatio;
+
+        // avoid division by zero
+        if (playerCount > 0)
+        {
+            scoreRatio = ((double) enemyCount) / ((double) playerCount);
+        }
+        // Computer (enemy) wins, set to large (desirable) value
+        else
+        {
+            scoreRatio = 100;
+        }
+
+        // if player wins, set to small (undesirable) value
+        if (enemyCount < 1)
+        {
+            scoreRatio = -100;
+        }
+
+        return scoreRatio;
+    }
+
+    /**
+     * Scores a draw as even material, a ratio of 1.
+     *
+     * @return 1
+     */
+    @Override
+    public double drawScore()
+    {
+        return 1;
+    }
+}
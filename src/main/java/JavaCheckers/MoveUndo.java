@@ -0,0 +1,52 @@
+package JavaCheckers;
+
+/**
+ * A MoveUndo holds the information GameBoard needs to take back a move that
+ * was made in place: which pieces (if any) were jumped, and whether the moving
+ * piece was crowned.  AISearch keeps one per search level and reuses them,
+ * so searching does not allocate new objects for every move tested.
+ *
+ * @author Jason Hamilton
+ */
+public class MoveUndo
+{
+   /**
+    * Mask of the squares (see Bitboard) of the jumped pieces, or 0 if the
+    * move was not a jump
+    */
+   int captured;
+
+   /**
+    * Mask of the jumped pieces that were kings
+    */
+   int capturedKings;
+
+   /**
+    * True if the moving piece was crowned by the move
+    */
+   boolean promoted;
+
+   /**
+    * Zobrist hash of the board before the move
+    */
+   long hash;
+
+   /**
+    * Constructor.  Initializes the record to a move with no capture and
+    * no promotion.
+    */
+   MoveUndo()
+   {
+      clear();
+   }
+
+   /**
+    * Resets the record to a move with no capture and no promotion.
+    */
+   public void clear()
+   {
+      captured = 0;
+      capturedKings = 0;
+      promoted = false;
+   }
+}
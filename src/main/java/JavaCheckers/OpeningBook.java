@@ -0,0 +1,275 @@
+package JavaCheckers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * OpeningBook holds known good moves for positions near the start of the
+ * game, so the AI can play them without searching.  A book is built by
+ * OpeningBookBuilder and stored as a file of fixed size entries sorted by
+ * position hash (GameBoard.getHash(), which includes the side to move):
+ *
+ * <pre>
+ *   header   "CKOB", then the number of entries (int)
+ *   entry    position hash (long), move squares (short), weight (short)
+ * </pre>
+ *
+ * A position with several book moves has one entry for each, next to each
+ * other.  The move squares are the low bits of a PackedMove, and the
+ * weight (0-65535) is how often the move was chosen when the book was
+ * built; a move with weight 0 is never played.
+ *
+ * <p> The file is memory-mapped and searched with a binary search, so
+ * opening a book reads nothing and a lookup only touches a few pages.
+ * Lookups only read the mapped file and may be made from any thread.
+ *
+ * @author Jason Hamilton
+ */
+public class OpeningBook
+{
+    /**
+     * First bytes of a book file
+     */
+    private static final byte[] MAGIC = "CKOB".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Length of the header, before the first entry
+     */
+    static final int HEADER_SIZE = 8;
+
+    /**
+     * Length of one entry
+     */
+    static final int ENTRY_SIZE = 12;
+
+    /**
+     * The book's entries, starting with the header
+     */
+    private final ByteBuffer entries;
+
+    /**
+     * Number of entries
+     */
+    private final int size;
+
+    /**
+     * Picks between the moves of a position, in proportion to their weights
+     */
+    private Random random = new Random();
+
+    /**
+     * Constructor.
+     *
+     * @param bookEntries header and entries of a book
+     * @throws IllegalArgumentException if the header is not valid
+     */
+    OpeningBook(ByteBuffer bookEntries)
+    {
+        for (int i = 0; i < MAGIC.length; i++)
+        {
+            if (bookEntries.capacity() < HEADER_SIZE || bookEntries.get(i) != MAGIC[i])
+            {
+                throw new IllegalArgumentException("Not an opening book");
+            }
+        }
+
+        entries = bookEntries;
+        size = bookEntries.getInt(4);
+
+        if (size < 0 || bookEntries.capacity() != HEADER_SIZE + (long) size * ENTRY_SIZE)
+        {
+            throw new IllegalArgumentException("Opening book has the wrong length");
+        }
+    }
+
+    /**
+     * Opens a book file, mapping it into memory.
+     *
+     * @param file book written by OpeningBookBuilder
+     * @return the book
+     * @throws IOException if the file cannot be read or is not a valid book
+     */
+    public static OpeningBook open(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new OpeningBook(buffer);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IOException(e.getMessage() + ": " + file, e);
+        }
+    }
+
+    /**
+     * Writes the header of a book with the given number of entries into the
+     * first bytes of a buffer.
+     *
+     * @param size number of entries
+     * @param buffer book, with HEADER_SIZE bytes of room first
+     */
+    static void writeHeader(int size, ByteBuffer buffer)
+    {
+        for (int i = 0; i < MAGIC.length; i++)
+        {
+            buffer.put(i, MAGIC[i]);
+        }
+
+        buffer.putInt(4, size);
+    }
+
+    /**
+     * Sets the random numbers used to pick between the moves of a
+     * position, for example to replay the same games.
+     *
+     * @param moveRandom random numbers to use
+     */
+    public void setRandom(Random moveRandom)
+    {
+        random = moveRandom;
+    }
+
+    /**
+     * Returns the number of entries in the book.
+     *
+     * @return number of position and move pairs
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Looks a position up in the book.  If the book has more than one move
+     * for the position, one is picked at random in proportion to the
+     * weights.  Book moves that are not legal in the position (the rare
+     * position with the same hash as a book position) are never returned.
+     *
+     * @param board position to look up
+     * @param player player whose turn it is
+     * @param move receives the book move, as a complete turn
+     * @return true if the book has a move for the position
+     */
+    public boolean probe(GameBoard board, int player, CheckersMove move)
+    {
+        long hash = board.getHash(player);
+        int first = findFirst(hash);
+
+        if (first < 0)
+        {
+            return false;
+        }
+
+        int[] legalMoves = new int[AISearch.MAX_MOVES];
+        int[] legalCaptures = new int[AISearch.MAX_MOVES];
+        int moveCount = board.getLegalTurns(player, legalMoves, legalCaptures, 0);
+
+        // total weight of the book moves that are legal here
+        int total = 0;
+
+        for (int i = first; i < size && hashAt(i) == hash; i++)
+        {
+            if (findMove(squaresAt(i), legalMoves, moveCount) >= 0)
+            {
+                total += weightAt(i);
+            }
+        }
+
+        if (total == 0)
+        {
+            return false;
+        }
+
+        int pick = random.nextInt(total);
+
+        for (int i = first; i < size && hashAt(i) == hash; i++)
+        {
+            int index = findMove(squaresAt(i), legalMoves, moveCount);
+
+            if (index >= 0)
+            {
+                pick -= weightAt(i);
+
+                if (pick < 0)
+                {
+                    board.unpackMove(legalMoves[index], legalCaptures[index], move);
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Finds the first entry for a position with a binary search.
+     *
+     * @param hash position hash
+     * @return index of the first entry with the hash, or -1 if there is none
+     */
+    private int findFirst(long hash)
+    {
+        int low = 0;
+        int high = size;
+
+        // find the first entry whose hash is not below the one wanted
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (hashAt(middle) < hash)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return (low < size && hashAt(low) == hash) ? low : -1;
+    }
+
+    /**
+     * Finds the legal move with the given squares.
+     *
+     * @param squares from and to squares, as in PackedMove.SQUARES
+     * @param legalMoves packed legal moves
+     * @param moveCount number of legal moves
+     * @return index of the first move with the squares, or -1
+     */
+    private static int findMove(int squares, int[] legalMoves, int moveCount)
+    {
+        for (int i = 0; i < moveCount; i++)
+        {
+            if ((legalMoves[i] & PackedMove.SQUARES) == squares)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private long hashAt(int index)
+    {
+        return entries.getLong(HEADER_SIZE + index * ENTRY_SIZE);
+    }
+
+    private int squaresAt(int index)
+    {
+        return entries.getShort(HEADER_SIZE + index * ENTRY_SIZE + 8) & PackedMove.SQUARES;
+    }
+
+    private int weightAt(int index)
+    {
+        return entries.getShort(HEADER_SIZE + index * ENTRY_SIZE + 10) & 0xFFFF;
+    }
+}
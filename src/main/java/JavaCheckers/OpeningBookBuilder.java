@@ -0,0 +1,550 @@
+package JavaCheckers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * OpeningBookBuilder collects book moves and writes them as an OpeningBook
+ * file.  Moves come from two sources:
+ *
+ * <ul>
+ * <li> The engine's own searches.  Starting from the opening position,
+ *      with either side moving first, the book side's move is found with a
+ *      deep search and followed, and every reply of the other side is
+ *      followed, for a given number of turns.  This covers every way the
+ *      opponent can start a game against the book.
+ * <li> Game records in PDN, the usual text format for draughts games.  The
+ *      moves of both sides are added, so moves played more often get more
+ *      weight.
+ * </ul>
+ *
+ * <p> Usage from the command line:
+ *
+ * <pre>
+ * java -cp java-checkers.jar JavaCheckers.OpeningBookBuilder book
+ *      [-search turns levels] [-import games.pdn]... [-threads n]
+ * </pre>
+ *
+ * @author Jason Hamilton
+ */
+public class OpeningBookBuilder
+{
+    /**
+     * Weight of each move, by position hash and move squares (see
+     * OpeningBook)
+     */
+    private final Map<Long, Map<Integer, Integer>> moves = new TreeMap<>();
+
+    /**
+     * Engine running the searches
+     */
+    private final CheckersEngine engine;
+
+    /**
+     * Deepest search for each book move, as in GameBoard.maxLevels
+     */
+    private int searchLevels;
+
+    /**
+     * Positions already followed, and the most turns left when each was
+     * followed, so a position reached again by a different
+     * order of moves is only followed again if there is further to go
+     */
+    private final Map<Long, Integer> followed = new HashMap<>();
+
+    /**
+     * Squares of the searched move of every position searched so far, or
+     * -1 for a position without a move
+     */
+    private final Map<Long, Integer> searched = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param threads number of threads the searches use
+     */
+    public OpeningBookBuilder(int threads)
+    {
+        engine = new CheckersEngine();
+        engine.setThreads(threads, false);
+    }
+
+    /**
+     * Adds weight to a move.
+     *
+     * @param hash hash of the position, with the side to move
+     * @param squares from and to squares of the move, as in PackedMove.SQUARES
+     * @param weight weight to add
+     */
+    public void addMove(long hash, int squares, int weight)
+    {
+        moves.computeIfAbsent(hash, key -> new TreeMap<>()).merge(squares, weight, Integer::sum);
+    }
+
+    /**
+     * Returns the number of positions with book moves so far.
+     *
+     * @return number of positions
+     */
+    public int getPositionCount()
+    {
+        return moves.size();
+    }
+
+    /**
+     * Adds the engine's own moves for the first turns of the game, for both
+     * sides and with either side moving first (see the class description).
+     *
+     * @param turns number of turns (plies) to cover from the opening position
+     * @param levels search depth for each book move, as in GameBoard.maxLevels
+     */
+    public void addSearchedMoves(int turns, int levels)
+    {
+        searchLevels = levels;
+        GameBoard board = new GameBoard();
+        board.newGame();
+
+        for (int bookSide : new int[] {GameBoard.PLAYER, GameBoard.ENEMY})
+        {
+            for (int firstPlayer : new int[] {GameBoard.PLAYER, GameBoard.ENEMY})
+            {
+                followed.clear();
+                follow(board, firstPlayer, bookSide, turns);
+            }
+        }
+    }
+
+    /**
+     * Follows the book side's searched move and all of the other side's
+     * moves from a position.
+     *
+     * @param board position to follow; restored before returning
+     * @param player player whose turn it is
+     * @param bookSide player the book moves are found for
+     * @param turnsLeft number of turns still to cover
+     */
+    private void follow(GameBoard board, int player, int bookSide, int turnsLeft)
+    {
+        long hash = board.getHash(player);
+
+        if (turnsLeft == 0 || followed.getOrDefault(hash, 0) >= turnsLeft)
+        {
+            return;
+        }
+
+        followed.put(hash, turnsLeft);
+
+        int nextPlayer = (player == GameBoard.ENEMY) ? GameBoard.PLAYER : GameBoard.ENEMY;
+        int[] legalMoves = new int[AISearch.MAX_MOVES];
+        int[] legalCaptures = new int[AISearch.MAX_MOVES];
+        int moveCount = board.getLegalTurns(player, legalMoves, legalCaptures, 0);
+        MoveUndo undo = new MoveUndo();
+
+        // the book side only plays its searched move
+        int bookMove = (player == bookSide) ? searchMove(board, player) : -1;
+
+        for (int i = 0; i < moveCount; i++)
+        {
+            if (player == bookSide && (legalMoves[i] & PackedMove.SQUARES) != bookMove)
+            {
+                continue;
+            }
+
+            board.makeMove(legalMoves[i], legalCaptures[i], undo);
+            follow(board, nextPlayer, bookSide, turnsLeft - 1);
+            board.unmakeMove(legalMoves[i], undo);
+
+            if (player == bookSide)
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Searches a position and adds the best move to the book, unless it has
+     * already been searched.
+     *
+     * @param board position to search
+     * @param player player whose turn it is
+     * @return squares of the best move, or -1 if there is none
+     */
+    private int searchMove(GameBoard board, int player)
+    {
+        long hash = board.getHash(player);
+        Integer known = searched.get(hash);
+
+        if (known != null)
+        {
+            return known;
+        }
+
+        engine.getBoard().setPosition(board.getPieces(GameBoard.PLAYER),
+                board.getPieces(GameBoard.ENEMY), board.getKings());
+        AIMoveTest best = engine.search(player, searchLevels, 0);
+
+        int squares = best.hasMove() ? PackedMove.squares(best.move) : -1;
+        searched.put(hash, squares);
+
+        if (squares >= 0)
+        {
+            addMove(hash, squares, 1);
+        }
+
+        return squares;
+    }
+
+    /**
+     * Adds the moves of the games in a PDN file.  Squares are numbered 1-32
+     * from the side of the player moving first (PLAYER here), as in the
+     * standard numbering.  Games that start from a set-up position (a FEN
+     * tag) are skipped, and a game is cut short at the first move that is
+     * not legal.
+     *
+     * @param file PDN file
+     * @return number of games read
+     * @throws IOException if the file cannot be read
+     */
+    public int importGames(Path file) throws IOException
+    {
+        String text = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        List<String> game = new ArrayList<>();
+        boolean setUp = false;
+        int games = 0;
+        int depth = 0;
+        StringBuilder token = new StringBuilder();
+
+        for (int i = 0; i <= text.length(); i++)
+        {
+            char c = (i < text.length()) ? text.charAt(i) : ' ';
+
+            // skip comments {...} and variations (...), which may be nested
+            if (c == '{' || c == '(')
+            {
+                depth++;
+            }
+            else if (c == '}' || c == ')')
+            {
+                depth = Math.max(0, depth - 1);
+            }
+            else if (depth > 0)
+            {
+                continue;
+            }
+            else if (c == '[')
+            {
+                // a tag after the moves starts the next game
+                if (!game.isEmpty())
+                {
+                    games += importGame(game, setUp);
+                    game.clear();
+                    setUp = false;
+                }
+
+                int end = text.indexOf(']', i);
+                end = (end < 0) ? text.length() : end;
+                setUp |= text.startsWith("[FEN", i);
+                i = end;
+            }
+            else if (Character.isWhitespace(c))
+            {
+                String word = token.toString();
+                token.setLength(0);
+
+                if (isResult(word))
+                {
+                    games += importGame(game, setUp);
+                    game.clear();
+                    setUp = false;
+                }
+                else if (word.matches("\\d+([-x]\\d+)+"))
+                {
+                    game.add(word);
+                }
+            }
+            else if (c != '.' || token.length() == 0 || !token.toString().matches("\\d+"))
+            {
+                token.append(c);
+            }
+            else
+            {
+                // a move number such as "12." is dropped
+                token.setLength(0);
+            }
+        }
+
+        games += importGame(game, setUp);
+        return games;
+    }
+
+    /**
+     * Returns whether a PDN word is a game result.
+     *
+     * @param word word from the movetext
+     * @return true for "1-0", "0-1", "1/2-1/2" and the like, or "*"
+     */
+    private static boolean isResult(String word)
+    {
+        return word.equals("*") || word.contains("/")
+                || word.equals("1-0") || word.equals("0-1")
+                || word.equals("2-0") || word.equals("0-2") || word.equals("1-1");
+    }
+
+    /**
+     * Plays through the moves of one game, adding each to the book.
+     *
+     * @param game moves in PDN notation, such as "11-15" or "22x15x8"
+     * @param setUp true if the game starts from a set-up position
+     * @return 1 if the game was read, 0 if it was empty or skipped
+     */
+    private int importGame(List<String> game, boolean setUp)
+    {
+        if (game.isEmpty() || setUp)
+        {
+            return 0;
+        }
+
+        GameBoard board = new GameBoard();
+        board.newGame();
+        int player = GameBoard.PLAYER;
+        int[] legalMoves = new int[AISearch.MAX_MOVES];
+        int[] legalCaptures = new int[AISearch.MAX_MOVES];
+        CheckersMove turn = new CheckersMove(0, 0, 0, 0);
+
+        for (String notation : game)
+        {
+            int moveCount = board.getLegalTurns(player, legalMoves, legalCaptures, 0);
+            int index = findMove(board, notation, legalMoves, legalCaptures, moveCount, turn);
+
+            if (index < 0)
+            {
+                break;
+            }
+
+            addMove(board.getHash(player), legalMoves[index] & PackedMove.SQUARES, 1);
+            board.makeMove(legalMoves[index], legalCaptures[index], null);
+            player = (player == GameBoard.ENEMY) ? GameBoard.PLAYER : GameBoard.ENEMY;
+        }
+
+        return 1;
+    }
+
+    /**
+     * Finds the legal turn a PDN move stands for.  A jump may give only its
+     * first and last squares, or every square it lands on.
+     *
+     * @param board position the move is made in
+     * @param notation PDN move
+     * @param legalMoves packed legal turns of the position
+     * @param legalCaptures squares captured by each turn
+     * @param moveCount number of legal turns
+     * @param turn scratch move used to compare paths
+     * @return index of the matching turn, or -1 if none matches
+     */
+    private static int findMove(GameBoard board, String notation, int[] legalMoves,
+                                int[] legalCaptures, int moveCount, CheckersMove turn)
+    {
+        String[] parts = notation.split("[-x]");
+        int[] squares = new int[parts.length];
+
+        for (int i = 0; i < parts.length; i++)
+        {
+            int number = Integer.parseInt(parts[i]);
+
+            if (number < 1 || number > 32)
+            {
+                return -1;
+            }
+
+            squares[i] = pdnSquare(number);
+        }
+
+        int from = squares[0];
+        int to = squares[squares.length - 1];
+
+        for (int i = 0; i < moveCount; i++)
+        {
+            int move = legalMoves[i];
+
+            if (PackedMove.from(move) != from || PackedMove.to(move) != to)
+            {
+                continue;
+            }
+
+            if (squares.length == 2)
+            {
+                return i;
+            }
+
+            // every landing square given, compare them with the path
+            board.unpackMove(move, legalCaptures[i], turn);
+            boolean same = (turn.pathLength == squares.length - 1);
+
+            for (int k = 0; same && k < turn.pathLength; k++)
+            {
+                same = (turn.path[k] == squares[k + 1]);
+            }
+
+            if (same)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Converts a PDN square number to a square number as in Bitboard.  PDN
+     * numbers the squares from the top left as seen by the side moving
+     * first, so square 1 is on PLAYER's back row.
+     *
+     * @param number PDN square, 1-32
+     * @return square number (0-31)
+     */
+    static int pdnSquare(int number)
+    {
+        int row = 7 - (number - 1) / 4;
+        return (row << 2) | ((number - 1) & 3);
+    }
+
+    /**
+     * Writes the book, sorted by position hash.  The file is written under
+     * a temporary name and renamed when complete.
+     *
+     * @param file book file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException
+    {
+        int size = 0;
+
+        for (Map<Integer, Integer> positionMoves : moves.values())
+        {
+            size += positionMoves.size();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_SIZE
+                + size * OpeningBook.ENTRY_SIZE);
+        OpeningBook.writeHeader(size, buffer);
+        buffer.position(OpeningBook.HEADER_SIZE);
+
+        // the TreeMap is already in the signed order the book searches in
+        for (Map.Entry<Long, Map<Integer, Integer>> position : moves.entrySet())
+        {
+            for (Map.Entry<Integer, Integer> move : position.getValue().entrySet())
+            {
+                buffer.putLong(position.getKey());
+                buffer.putShort((short) (int) move.getKey());
+                buffer.putShort((short) Math.min(move.getValue(), 0xFFFF));
+            }
+        }
+
+        buffer.flip();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Builds a book from the command line (see the class description).
+     *
+     * @param args book file, then -search, -import and -threads options
+     */
+    public static void main(String[] args)
+    {
+        Path book = null;
+        int turns = 0;
+        int levels = 0;
+        List<Path> imports = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                switch (args[i])
+                {
+                    case "-search":
+                        turns = Integer.parseInt(args[++i]);
+                        levels = Integer.parseInt(args[++i]);
+                        break;
+                    case "-import":
+                        imports.add(Paths.get(args[++i]));
+                        break;
+                    case "-threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        if (book != null)
+                        {
+                            throw new IllegalArgumentException(args[i]);
+                        }
+                        book = Paths.get(args[i]);
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            book = null;
+        }
+
+        if (book == null || (turns <= 0 && imports.isEmpty()))
+        {
+            System.err.println("usage: OpeningBookBuilder book [-search turns levels]"
+                    + " [-import games.pdn]... [-threads n]");
+            System.exit(1);
+        }
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(threads);
+
+        try
+        {
+            for (Path games : imports)
+            {
+                int count = builder.importGames(games);
+                System.out.println(games + ": " + count + " games, "
+                        + builder.getPositionCount() + " positions so far");
+            }
+
+            if (turns > 0)
+            {
+                long start = System.nanoTime();
+                builder.addSearchedMoves(turns, levels);
+                System.out.printf("searched %d turns at %d levels: %d positions so far, %,.1f s%n",
+                        turns, levels, builder.getPositionCount(),
+                        (System.nanoTime() - start) / 1e9);
+            }
+
+            builder.write(book);
+            System.out.println("wrote " + book);
+        }
+        catch (IOException e)
+        {
+            System.err.println("opening book failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
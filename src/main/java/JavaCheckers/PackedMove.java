@@ -0,0 +1,135 @@
+package JavaCheckers;
+
+/**
+ * PackedMove holds the encoding GameBoard uses to generate moves into
+ * plain int arrays instead of CheckersMove objects.  A move is a single
+ * int:
+ *
+ * <pre>
+ *   bits  0-4   square the piece starts on (numbered as in Bitboard)
+ *   bits  5-9   square the piece finally lands on
+ *   bit   10    JUMP, set if the move captures
+ *   bit   11    PROMOTE, set if a man is crowned during the move
+ *   bits 12-15  number of jumps, 0 for a regular move
+ * </pre>
+ *
+ * <p> The squares of the pieces a series jump captures do not fit in the
+ * same int, so they are kept as a mask in a second array beside the moves
+ * (see GameBoard.getLegalTurns(int, int[], int[], int)).  The low 10 bits,
+ * the two squares, are what the transposition table and the killer moves
+ * store for a move.
+ *
+ * @author Jason Hamilton
+ */
+final class PackedMove
+{
+    /**
+     * Set if the move is a jump
+     */
+    static final int JUMP = 1 << 10;
+
+    /**
+     * Set if the moving piece is a man that is crowned during the move
+     */
+    static final int PROMOTE = 1 << 11;
+
+    /**
+     * Bits holding the source and target squares
+     */
+    static final int SQUARES = 0x3FF;
+
+    /**
+     * Position of the jump count
+     */
+    private static final int JUMPS_SHIFT = 12;
+
+    /**
+     * Not meant to be instantiated; all members are static.
+     */
+    private PackedMove()
+    {
+    }
+
+    /**
+     * Packs a move into an int.
+     *
+     * @param fromSquare square the piece starts on
+     * @param toSquare square the piece finally lands on
+     * @param flags JUMP and/or PROMOTE, or 0
+     * @param jumps number of jumps, 0 for a regular move
+     * @return the packed move
+     */
+    static int encode(int fromSquare, int toSquare, int flags, int jumps)
+    {
+        return fromSquare | (toSquare << 5) | flags | (jumps << JUMPS_SHIFT);
+    }
+
+    /**
+     * Returns the square a move starts on.
+     *
+     * @param move packed move
+     * @return square number (0-31)
+     */
+    static int from(int move)
+    {
+        return move & 31;
+    }
+
+    /**
+     * Returns the square a move finally lands on.
+     *
+     * @param move packed move
+     * @return square number (0-31)
+     */
+    static int to(int move)
+    {
+        return (move >>> 5) & 31;
+    }
+
+    /**
+     * Returns whether a move is a jump.
+     *
+     * @param move packed move
+     * @return true if the move captures
+     */
+    static boolean isJump(int move)
+    {
+        return (move & JUMP) != 0;
+    }
+
+    /**
+     * Returns whether a move crowns the moving piece.
+     *
+     * @param move packed move
+     * @return true if a man is crowned during the move
+     */
+    static boolean promotes(int move)
+    {
+        return (move & PROMOTE) != 0;
+    }
+
+    /**
+     * Returns the number of jumps a move makes.
+     *
+     * @param move packed move
+     * @return number of jumps, 0 for a regular move
+     */
+    static int jumps(int move)
+    {
+        return move >>> JUMPS_SHIFT;
+    }
+
+    /**
+     * Returns the squares of a CheckersMove packed the same way as the low
+     * bits of a packed move, to compare it with the moves stored by the
+     * transposition table.
+     *
+     * @param move move to pack
+     * @return fromSquare | (toSquare &lt;&lt; 5)
+     */
+    static int squares(CheckersMove move)
+    {
+        return Bitboard.square(move.fromRow, move.fromCol)
+                | (Bitboard.square(move.toRow, move.toCol) << 5);
+    }
+}
@@ -0,0 +1,414 @@
+package JavaCheckers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Perft ("performance test") counts the positions reachable from a
+ * position in exactly a given number of turns.  The counts only depend on
+ * the rules, so they can be checked against known values, and against the
+ * counts of any new move generator; the time taken measures how fast moves
+ * are generated and made.
+ *
+ * <p> A turn is counted the way the game plays it: a series jump is one
+ * turn, made as a single move from GameBoard.getLegalTurns().  Each
+ * different path of jumps is a different position at the end of the turn.
+ *
+ * <p> From the starting position the counts are 7, 49, 302, 1469, 7361,
+ * 36768, 179740 and 845931 for depths 1 to 8, the published values for
+ * English draughts.  From depth 9 on they differ slightly (3963629 and
+ * 18391602 for depths 9 and 10, against 3963680 and 18391564), because in
+ * this game a man crowned in the middle of a series jump keeps jumping as
+ * a king, where the official rules end the turn.
+ *
+ * <p> divide() gives the count below each of the root moves,
+ * which narrows a wrong total down to the move that causes it.  With a
+ * ForkJoinPool the root moves are counted in parallel, each on its own copy
+ * of the board.  With a TranspositionTable, the count below each position
+ * at the start of a turn is stored and reused when the position is reached
+ * again by a different order of moves.
+ *
+ * <p> Usage from the command line:
+ *
+ * <pre>
+ * java -cp java-checkers.jar JavaCheckers.Perft depth [position side]
+ *      [-divide] [-threads n] [-table megabytes]
+ * </pre>
+ *
+ * where position is in CheckersEngine's text format and side is "p" or
+ * "e" for the side to move (the starting position with PLAYER to move by
+ * default).
+ *
+ * @author Jason Hamilton
+ */
+public class Perft
+{
+    /**
+     * Deepest count supported
+     */
+    static final int MAX_DEPTH = 64;
+
+    /**
+     * Board being counted.  Moves are made and taken back on it directly.
+     */
+    private final GameBoard board;
+
+    /**
+     * Legal moves of every level as PackedMoves, AISearch.MAX_MOVES of room
+     * per level starting at ply * AISearch.MAX_MOVES
+     */
+    private final int[] moveStack;
+
+    /**
+     * Squares captured by each move in moveStack, at the same index
+     */
+    private final int[] captureStack;
+
+    /**
+     * Reusable undo records, one per level
+     */
+    private final MoveUndo[] undoRecords;
+
+    /**
+     * Table of stored counts, or null to count every subtree
+     */
+    private TranspositionTable table;
+
+    /**
+     * Reusable copy of the last entry found in the table
+     */
+    private final TableEntry tableEntry = new TableEntry();
+
+    /**
+     * Number of positions at the start of a turn the last count visited
+     * above the last level (the leaves themselves are only counted, not
+     * visited)
+     */
+    long nodes;
+
+    /**
+     * Constructor.  Prepares the move buffers for counting the given board.
+     *
+     * @param gameBoard board to count; it is modified during a count and
+     *                  restored before the count returns
+     */
+    public Perft(GameBoard gameBoard)
+    {
+        board = gameBoard;
+
+        int levels = MAX_DEPTH + 2;
+        moveStack = new int[levels * AISearch.MAX_MOVES];
+        captureStack = new int[levels * AISearch.MAX_MOVES];
+        undoRecords = new MoveUndo[levels];
+
+        for (int i = 0; i < levels; i++)
+        {
+            undoRecords[i] = new MoveUndo();
+        }
+    }
+
+    /**
+     * Makes the following counts store and reuse subtree counts in the
+     * given table.  The table should not be shared with a search at the
+     * same time, since it stores counts in place of scores.
+     *
+     * @param transpositionTable table for the counts, or null for none
+     */
+    public void setTable(TranspositionTable transpositionTable)
+    {
+        table = transpositionTable;
+    }
+
+    /**
+     * Counts the positions reachable in exactly depth turns.
+     *
+     * @param depth number of turns, 0 to MAX_DEPTH
+     * @param player player whose turn it is
+     * @return number of positions (paths) at the given depth
+     */
+    public long perft(int depth, int player)
+    {
+        nodes = 0;
+        return countTurn(Math.min(depth, MAX_DEPTH), player, 0);
+    }
+
+    /**
+     * Counts the positions reachable in exactly depth turns, counting the
+     * root moves in parallel if a pool is given.
+     *
+     * @param depth number of turns, 0 to MAX_DEPTH
+     * @param player player whose turn it is
+     * @param pool threads to count with, or null to count on this thread
+     * @return number of positions (paths) at the given depth
+     */
+    public long perft(int depth, int player, ForkJoinPool pool)
+    {
+        if (depth <= 0 || pool == null)
+        {
+            return perft(depth, player);
+        }
+
+        long total = 0;
+
+        for (long count : divide(depth, player, pool))
+        {
+            total += count;
+        }
+
+        return total;
+    }
+
+    /**
+     * Counts the positions reachable in exactly depth turns below each
+     * legal move of the root position.  The counts are in the order of
+     * board.getLegalTurns(player), with each series jump as one move.
+     *
+     * @param depth number of turns, 1 to MAX_DEPTH
+     * @param player player whose turn it is
+     * @param pool threads to count with, or null to count on this thread
+     * @return count below each root move, empty if there are no legal moves
+     */
+    public long[] divide(int depth, int player, ForkJoinPool pool)
+    {
+        int[] rootMoves = new int[AISearch.MAX_MOVES];
+        int[] rootCaptures = new int[AISearch.MAX_MOVES];
+        int moveCount = board.getLegalTurns(player, rootMoves, rootCaptures, 0);
+        long[] counts = new long[moveCount];
+        depth = Math.max(1, Math.min(depth, MAX_DEPTH));
+        nodes = 0;
+
+        if (pool == null)
+        {
+            for (int i = 0; i < moveCount; i++)
+            {
+                counts[i] = countMove(depth, player, rootMoves[i], rootCaptures[i], 1);
+            }
+
+            return counts;
+        }
+
+        List<Perft> workers = new ArrayList<>();
+        List<Callable<Long>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < moveCount; i++)
+        {
+            Perft worker = new Perft(new GameBoard(board));
+            int turns = depth;
+            int move = rootMoves[i];
+            int captured = rootCaptures[i];
+            worker.table = table;
+            workers.add(worker);
+            tasks.add(() -> worker.countMove(turns, player, move, captured, 1));
+        }
+
+        List<Future<Long>> results = pool.invokeAll(tasks);
+
+        for (int i = 0; i < counts.length; i++)
+        {
+            try
+            {
+                counts[i] = results.get(i).get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("perft interrupted", e);
+            }
+            catch (ExecutionException e)
+            {
+                throw new IllegalStateException("perft failed", e.getCause());
+            }
+
+            nodes += workers.get(i).nodes;
+        }
+
+        return counts;
+    }
+
+    /**
+     * Counts the positions below one complete turn.
+     *
+     * @param depth turns left, counting the current one
+     * @param player player making the move
+     * @param move packed move to make
+     * @param captured squares captured by the move
+     * @param ply level of the buffers to use after the move
+     * @return number of positions below the move
+     */
+    private long countMove(int depth, int player, int move, int captured, int ply)
+    {
+        MoveUndo undo = undoRecords[ply - 1];
+        board.makeMove(move, captured, undo);
+        long count = countTurn(depth - 1, opponent(player), ply);
+        board.unmakeMove(move, undo);
+
+        return count;
+    }
+
+    /**
+     * Counts the positions below a position at the start of a turn.
+     *
+     * @param depth turns left
+     * @param player player whose turn it is
+     * @param ply level of the buffers to use
+     * @return number of positions depth turns ahead
+     */
+    private long countTurn(int depth, int player, int ply)
+    {
+        if (depth == 0)
+        {
+            return 1;
+        }
+
+        nodes++;
+        long key = 0;
+
+        if (table != null)
+        {
+            key = board.getHash(player);
+
+            if (table.probe(key, tableEntry) && tableEntry.depth == depth)
+            {
+                return (long) tableEntry.score;
+            }
+        }
+
+        int base = ply * AISearch.MAX_MOVES;
+        int moveCount = board.getLegalTurns(player, moveStack, captureStack, base);
+
+        if (depth == 1 && table == null)
+        {
+            // each legal turn is a leaf
+            return moveCount;
+        }
+
+        long total = 0;
+
+        for (int i = 0; i < moveCount; i++)
+        {
+            total += countMove(depth, player, moveStack[base + i],
+                    captureStack[base + i], ply + 1);
+        }
+
+        if (table != null)
+        {
+            table.store(key, depth, total, TranspositionTable.EXACT, TranspositionTable.NO_MOVE);
+        }
+
+        return total;
+    }
+
+    /**
+     * Returns the other player.
+     *
+     * @param player GameBoard.PLAYER or GameBoard.ENEMY
+     * @return the opponent of player
+     */
+    private static int opponent(int player)
+    {
+        return (player == GameBoard.ENEMY) ? GameBoard.PLAYER : GameBoard.ENEMY;
+    }
+
+    /**
+     * Runs perft from the command line (see the class description), printing
+     * the count, time and speed for every depth up to the one given.
+     *
+     * @param args depth, optional position and side, and options
+     */
+    public static void main(String[] args)
+    {
+        int depth = 0;
+        String position = null;
+        int player = GameBoard.PLAYER;
+        boolean divide = false;
+        int threads = 1;
+        int tableMB = 0;
+
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                switch (args[i])
+                {
+                    case "-divide":
+                        divide = true;
+                        break;
+                    case "-threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-table":
+                        tableMB = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        if (depth == 0)
+                        {
+                            depth = Integer.parseInt(args[i]);
+                        }
+                        else if (position == null)
+                        {
+                            position = args[i];
+                        }
+                        else
+                        {
+                            player = args[i].equals("e") ? GameBoard.ENEMY : GameBoard.PLAYER;
+                        }
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            depth = 0;
+        }
+
+        if (depth < 1)
+        {
+            System.err.println("usage: Perft depth [position p|e] [-divide] [-threads n] [-table megabytes]");
+            System.exit(1);
+        }
+
+        CheckersEngine engine = new CheckersEngine(1);
+
+        if (position != null)
+        {
+            engine.setPosition(position);
+        }
+
+        Perft perft = new Perft(engine.getBoard());
+        ForkJoinPool pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+
+        if (tableMB > 0)
+        {
+            perft.setTable(new TranspositionTable(tableMB));
+        }
+
+        for (int d = 1; d <= depth; d++)
+        {
+            long start = System.nanoTime();
+            long count = perft.perft(d, player, pool);
+            long elapsed = Math.max(1, System.nanoTime() - start);
+
+            System.out.printf("perft %2d: %,15d   %,10.1f ms   %,8.2f M leaves/s%n",
+                    d, count, elapsed / 1e6, count * 1e3 / elapsed);
+        }
+
+        if (divide)
+        {
+            CheckersMove[] rootMoves = engine.getLegalTurns(player);
+            long[] counts = perft.divide(depth, player, pool);
+
+            for (int i = 0; i < counts.length; i++)
+            {
+                System.out.println(rootMoves[i] + ": " + counts[i]);
+            }
+        }
+
+        if (pool != null)
+        {
+            pool.shutdown();
+        }
+    }
+}
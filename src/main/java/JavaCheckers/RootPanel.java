@@ -2,6 +2,7 @@ package JavaCheckers;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 
 /**
  * The RootPanel acts as the main content pane for all other panels.  It
@@ -9,7 +10,8 @@ import java.awt.*;
  *
  * This is better than using the root JFrame's getContentPane(), because
  * the JPanel superclass automatically provides double-buffering to eliminate
- * flicker and the paintImmediately() method to do order-safe calls.
+ * flicker.  The game board is opaque, so moves on it do not repaint this
+ * panel.
  */
 public class RootPanel
         extends JPanel
@@ -19,6 +21,13 @@ public class RootPanel
      */
     CheckersGame game;
 
+    /**
+     * Copy of game.img_background in the screen's own format (see
+     * GameBoardPanel.createLayer()), and the configuration it was made for
+     */
+    BufferedImage backgroundLayer;
+    GraphicsConfiguration backgroundLayerConfig;
+
     /**
      * Constructs a new RootPanel object, passing the BorderLayout argument
      * b to the superclass constructor.
@@ -40,8 +49,18 @@ public class RootPanel
     {
         int xOffset;         // used to center text
 
+        if (backgroundLayer == null || backgroundLayerConfig != getGraphicsConfiguration())
+        {
+            backgroundLayer = GameBoardPanel.createLayer(this, 600, 600);
+            backgroundLayerConfig = getGraphicsConfiguration();
+
+            Graphics layer = backgroundLayer.getGraphics();
+            layer.drawImage(game.img_background, 0, 0, null);
+            layer.dispose();
+        }
+
         // draw game board, buttons, and titles
-        g.drawImage(game.img_background, 0, 0, this);
+        g.drawImage(backgroundLayer, 0, 0, null);
 
         // draw pieces, names, and stats if a game is started
         if (game.gameInProgress)
@@ -0,0 +1,58 @@
+package JavaCheckers;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * SearchFuture is the result of a search running in the background (see
+ * CheckersEngine.searchAsync()).  It completes with the best move once the
+ * search is done, and cancelling it also stops the search itself, which
+ * then unwinds within a few thousand positions instead of running until
+ * its time is up.
+ *
+ * @author Jason Hamilton
+ */
+public class SearchFuture extends CompletableFuture<AIMoveTest>
+{
+    /**
+     * Stops the running search, or null until the search has started
+     */
+    private volatile Runnable stopper;
+
+    /**
+     * Connects the future to the search computing it.  If the future was
+     * already cancelled, the search is stopped at once.
+     *
+     * @param stopSearch stops the search, as AISearch.stop() does
+     */
+    void attach(Runnable stopSearch)
+    {
+        stopper = stopSearch;
+
+        if (isCancelled())
+        {
+            stopSearch.run();
+        }
+    }
+
+    /**
+     * Cancels the future and stops the search computing it.  The result of
+     * the stopped search is thrown away.
+     *
+     * @param mayInterruptIfRunning ignored; the search is always stopped
+     * @return true if the future was cancelled, false if it had already
+     *         completed
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        Runnable stopSearch = stopper;
+
+        if (stopSearch != null)
+        {
+            stopSearch.run();
+        }
+
+        return cancelled;
+    }
+}
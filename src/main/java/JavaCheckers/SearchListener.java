@@ -0,0 +1,19 @@
+package JavaCheckers;
+
+/**
+ * SearchListener is told about every search a CheckersEngine finishes (see
+ * CheckersEngine.addSearchListener()), for logging or monitoring what the
+ * AI costs.  It is called on the thread that ran the search, before the
+ * move is returned, so it should return quickly.
+ *
+ * @author Jason Hamilton
+ */
+public interface SearchListener
+{
+    /**
+     * Called when a search has finished.
+     *
+     * @param stats cost of the search
+     */
+    void searchFinished(SearchStats stats);
+}
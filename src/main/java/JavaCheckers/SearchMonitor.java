@@ -0,0 +1,138 @@
+package JavaCheckers;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * SearchMonitor keeps running totals of an engine's searches and the
+ * statistics of the last one, and publishes them over JMX so the cost of
+ * each move can be watched in a running game with jconsole or any other
+ * JMX client.  It is a SearchListener, so it can also be added to an
+ * engine without registering it.
+ *
+ * @author Jason Hamilton
+ */
+public class SearchMonitor implements SearchListener, SearchMonitorMXBean
+{
+    /**
+     * JMX domain the monitors are registered under
+     */
+    public static final String DOMAIN = "JavaCheckers";
+
+    /**
+     * Statistics of the last search, or null if there has been none
+     */
+    private SearchStats last;
+
+    /**
+     * Searches, positions and nanoseconds since the start or the last reset
+     */
+    private long searchCount;
+    private long totalNodes;
+    private long totalTime;
+
+    /**
+     * Creates a monitor, adds it to an engine's listeners, and registers it
+     * with the platform MBean server as
+     * JavaCheckers:type=SearchMonitor,name="<i>name</i>".
+     *
+     * @param engine engine to monitor
+     * @param name name to register the monitor under
+     * @return the monitor
+     * @throws JMException if the name is not valid or already registered
+     */
+    public static SearchMonitor register(CheckersEngine engine, String name) throws JMException
+    {
+        SearchMonitor monitor = new SearchMonitor();
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=SearchMonitor,name="
+                + ObjectName.quote(name));
+
+        ManagementFactory.getPlatformMBeanServer().registerMBean(monitor, objectName);
+        engine.addSearchListener(monitor);
+        return monitor;
+    }
+
+    @Override
+    public synchronized void searchFinished(SearchStats stats)
+    {
+        last = stats;
+        searchCount++;
+        totalNodes += stats.getNodes();
+        totalTime += stats.getWallTimeNanos();
+    }
+
+    @Override
+    public synchronized long getSearchCount()
+    {
+        return searchCount;
+    }
+
+    @Override
+    public synchronized long getTotalNodes()
+    {
+        return totalNodes;
+    }
+
+    @Override
+    public synchronized double getTotalTimeMillis()
+    {
+        return totalTime / 1e6;
+    }
+
+    @Override
+    public synchronized double getAverageNodesPerSecond()
+    {
+        return totalTime > 0 ? totalNodes * 1e9 / totalTime : 0;
+    }
+
+    @Override
+    public synchronized int getLastLevels()
+    {
+        return last != null ? last.getLevels() : -1;
+    }
+
+    @Override
+    public synchronized long getLastNodes()
+    {
+        return last != null ? last.getNodes() : 0;
+    }
+
+    @Override
+    public synchronized double getLastNodesPerSecond()
+    {
+        return last != null ? last.getNodesPerSecond() : 0;
+    }
+
+    @Override
+    public synchronized double getLastEffectiveBranchingFactor()
+    {
+        return last != null ? last.getEffectiveBranchingFactor() : 0;
+    }
+
+    @Override
+    public synchronized double getLastTableHitRate()
+    {
+        return last != null ? last.getTableHitRate() : 0;
+    }
+
+    @Override
+    public synchronized double getLastCutoffRate()
+    {
+        return last != null ? last.getCutoffRate() : 0;
+    }
+
+    @Override
+    public synchronized double getLastTimeMillis()
+    {
+        return last != null ? last.getWallTimeNanos() / 1e6 : 0;
+    }
+
+    @Override
+    public synchronized void reset()
+    {
+        searchCount = 0;
+        totalNodes = 0;
+        totalTime = 0;
+    }
+}
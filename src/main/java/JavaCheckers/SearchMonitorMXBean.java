@@ -0,0 +1,70 @@
+package JavaCheckers;
+
+/**
+ * Management interface of SearchMonitor, giving JMX clients such as
+ * jconsole the cost of the AI's searches.
+ *
+ * @author Jason Hamilton
+ */
+public interface SearchMonitorMXBean
+{
+    /**
+     * @return number of searches since the start or the last reset
+     */
+    long getSearchCount();
+
+    /**
+     * @return positions visited by all searches
+     */
+    long getTotalNodes();
+
+    /**
+     * @return milliseconds spent in all searches
+     */
+    double getTotalTimeMillis();
+
+    /**
+     * @return positions visited per second over all searches
+     */
+    double getAverageNodesPerSecond();
+
+    /**
+     * @return levels finished by the last search
+     */
+    int getLastLevels();
+
+    /**
+     * @return positions visited by the last search
+     */
+    long getLastNodes();
+
+    /**
+     * @return positions visited per second by the last search
+     */
+    double getLastNodesPerSecond();
+
+    /**
+     * @return effective branching factor of the last search
+     */
+    double getLastEffectiveBranchingFactor();
+
+    /**
+     * @return transposition table hit rate of the last search, from 0 to 1
+     */
+    double getLastTableHitRate();
+
+    /**
+     * @return cutoff rate of the last search, from 0 to 1
+     */
+    double getLastCutoffRate();
+
+    /**
+     * @return milliseconds the last search took
+     */
+    double getLastTimeMillis();
+
+    /**
+     * Sets the totals back to zero.
+     */
+    void reset();
+}
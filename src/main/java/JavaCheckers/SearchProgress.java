@@ -0,0 +1,20 @@
+package JavaCheckers;
+
+/**
+ * SearchProgress is told each time an iterative deepening search finishes
+ * another level (see CheckersEngine.searchAsync()), so a user interface
+ * can show how far the AI has got while it is still thinking.  It is
+ * called on the thread running the search.
+ *
+ * @author Jason Hamilton
+ */
+public interface SearchProgress
+{
+    /**
+     * Called when the search has finished a level.
+     *
+     * @param levels number of levels finished, as in GameBoard.maxLevels
+     * @param bestMove best move found at that depth, and its score
+     */
+    void levelFinished(int levels, AIMoveTest bestMove);
+}
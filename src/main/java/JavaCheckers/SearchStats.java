@@ -0,0 +1,227 @@
+package JavaCheckers;
+
+/**
+ * SearchStats holds the cost of one search made by a CheckersEngine: how
+ * many positions it visited, how deep it got, how long it took, and how
+ * well the transposition table and alpha-beta pruning worked.  The engine
+ * creates one after every search and hands it to its SearchListeners.
+ *
+ * @author Jason Hamilton
+ */
+public final class SearchStats
+{
+    /**
+     * Player the search was for
+     */
+    private final int player;
+
+    /**
+     * Deepest number of levels finished, as in GameBoard.maxLevels, or -1
+     * if the move did not come from a search
+     */
+    private final int levels;
+
+    /**
+     * Positions visited, on all threads
+     */
+    private final long nodes;
+
+    /**
+     * Positions whose remaining moves were skipped by an alpha-beta cutoff
+     */
+    private final long cutoffs;
+
+    /**
+     * Positions scored from the endgame tablebase
+     */
+    private final long tablebaseHits;
+
+    /**
+     * Transposition table probes made, and how many found their position
+     */
+    private final long tableProbes;
+    private final long tableHits;
+
+    /**
+     * Nanoseconds from the start of the search to its result
+     */
+    private final long wallTime;
+
+    /**
+     * True if the move came from the opening book
+     */
+    private final boolean bookMove;
+
+    /**
+     * Constructor.
+     *
+     * @param searchPlayer player the search was for
+     * @param levelsCompleted deepest number of levels finished, or -1
+     * @param nodeCount positions visited
+     * @param cutoffCount alpha-beta cutoffs made
+     * @param tablebaseCount positions scored from the tablebase
+     * @param probeCount transposition table probes
+     * @param hitCount probes that found their position
+     * @param nanos wall time of the search in nanoseconds
+     * @param fromBook true if the move came from the opening book
+     */
+    SearchStats(int searchPlayer, int levelsCompleted, long nodeCount, long cutoffCount,
+                long tablebaseCount, long probeCount, long hitCount, long nanos,
+                boolean fromBook)
+    {
+        player = searchPlayer;
+        levels = levelsCompleted;
+        nodes = nodeCount;
+        cutoffs = cutoffCount;
+        tablebaseHits = tablebaseCount;
+        tableProbes = probeCount;
+        tableHits = hitCount;
+        wallTime = nanos;
+        bookMove = fromBook;
+    }
+
+    /**
+     * Returns the player the search was for.
+     *
+     * @return GameBoard.PLAYER or GameBoard.ENEMY
+     */
+    public int getPlayer()
+    {
+        return player;
+    }
+
+    /**
+     * Returns the deepest number of levels the search finished.  Levels
+     * count as in GameBoard.maxLevels, so 0 is a search one turn ahead.
+     *
+     * @return levels finished, or -1 for a book move or a search stopped
+     *         before its first level
+     */
+    public int getLevels()
+    {
+        return levels;
+    }
+
+    /**
+     * Returns the number of positions visited, counting every thread.
+     *
+     * @return node count
+     */
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Returns the wall time of the search.
+     *
+     * @return nanoseconds from the start of the search to its result
+     */
+    public long getWallTimeNanos()
+    {
+        return wallTime;
+    }
+
+    /**
+     * Returns the number of positions visited per second of wall time.
+     *
+     * @return nodes per second, 0 if no time was measured
+     */
+    public double getNodesPerSecond()
+    {
+        return wallTime > 0 ? nodes * 1e9 / wallTime : 0;
+    }
+
+    /**
+     * Returns the effective branching factor: the number of moves each
+     * position would need to have for a full tree as deep as the search to
+     * have as many positions as it visited.  Lower means better pruning.
+     *
+     * @return branching factor, 0 if no level was finished
+     */
+    public double getEffectiveBranchingFactor()
+    {
+        return (levels >= 0 && nodes > 0) ? Math.pow(nodes, 1.0 / (levels + 1)) : 0;
+    }
+
+    /**
+     * Returns the number of alpha-beta cutoffs made.
+     *
+     * @return positions whose remaining moves were skipped
+     */
+    public long getCutoffs()
+    {
+        return cutoffs;
+    }
+
+    /**
+     * Returns the share of visited positions that ended in a cutoff.
+     *
+     * @return cutoffs per node, from 0 to 1
+     */
+    public double getCutoffRate()
+    {
+        return nodes > 0 ? (double) cutoffs / nodes : 0;
+    }
+
+    /**
+     * Returns the number of positions scored from the endgame tablebase.
+     *
+     * @return tablebase hits
+     */
+    public long getTablebaseHits()
+    {
+        return tablebaseHits;
+    }
+
+    /**
+     * Returns the number of transposition table probes made.
+     *
+     * @return probes, hits and misses together
+     */
+    public long getTableProbes()
+    {
+        return tableProbes;
+    }
+
+    /**
+     * Returns the share of transposition table probes that found the
+     * position they were looking for.
+     *
+     * @return hits per probe, from 0 to 1
+     */
+    public double getTableHitRate()
+    {
+        return tableProbes > 0 ? (double) tableHits / tableProbes : 0;
+    }
+
+    /**
+     * Returns whether the move was played from the opening book without
+     * searching.
+     *
+     * @return true for a book move
+     */
+    public boolean isBookMove()
+    {
+        return bookMove;
+    }
+
+    /**
+     * Returns the statistics as one line of text.
+     *
+     * @return text such as "levels: 8, nodes: 52000, nps: 1040000, ..."
+     */
+    @Override
+    public String toString()
+    {
+        if (bookMove)
+        {
+            return String.format("book move, time: %.1f ms", wallTime / 1e6);
+        }
+
+        return String.format("levels: %d, nodes: %d, nps: %.0f, ebf: %.2f, tt hit rate: %.1f%%,"
+                        + " cutoff rate: %.1f%%, time: %.1f ms", levels, nodes,
+                getNodesPerSecond(), getEffectiveBranchingFactor(), getTableHitRate() * 100,
+                getCutoffRate() * 100, wallTime / 1e6);
+    }
+}
@@ -0,0 +1,33 @@
+package JavaCheckers;
+
+/**
+ * A TableEntry receives a copy of a TranspositionTable entry when a
+ * position is looked up.  Copying the entry out in one step means a search
+ * thread never reads one half of an entry while another thread is
+ * overwriting the other half.  Each AISearch keeps one and reuses it.
+ *
+ * @author Jason Hamilton
+ */
+public class TableEntry
+{
+   /**
+    * Number of levels that were searched below the position
+    */
+   int depth;
+
+   /**
+    * Bound type of the score: TranspositionTable.EXACT, LOWER or UPPER
+    */
+   int bound;
+
+   /**
+    * Squares of the best move found (the low bits of a PackedMove), or
+    * TranspositionTable.NO_MOVE
+    */
+   int move;
+
+   /**
+    * Score of the position (see bound)
+    */
+   double score;
+}
@@ -0,0 +1,351 @@
+package JavaCheckers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Tablebase looks up the result of endgame positions with perfect play, as
+ * worked out ahead of time by TablebaseGenerator.  The positions are split
+ * into slices by the number of men and kings on each side (see
+ * TablebaseIndex), each stored in its own file with one byte per position.
+ * The files are memory-mapped, so opening a tablebase reads nothing until
+ * a position is probed, and the operating system keeps the parts in use in
+ * memory.
+ *
+ * <p> A probe returns a value byte for the side to move:
+ *
+ * <pre>
+ *   0         draw: neither side can force a win
+ *   1-127     win, with distance value - 1
+ *   128-255   loss, with distance value - 128
+ * </pre>
+ *
+ * The distance is the number of turns (plies) until the next capture or
+ * crowning with best play, or until the loser has no move left: the winner
+ * shortens it and the loser lengthens it.  Distances too long for the byte
+ * are stored as 126 (win) or 127 (loss), which keeps the result exact.
+ *
+ * <p> The search probes positions with few enough pieces instead of
+ * searching them (see AISearch.setTablebase()).  Probing only reads the
+ * mapped files, so one tablebase can be shared by any number of threads.
+ *
+ * @author Jason Hamilton
+ */
+public class Tablebase
+{
+    /**
+     * Returned by probe() for a position the tablebase does not cover
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Value of a drawn position
+     */
+    public static final int DRAW = 0;
+
+    /**
+     * Value of a won position at distance 0, and the longest win distance
+     */
+    private static final int WIN = 1;
+    private static final int MAX_WIN_DISTANCE = 126;
+
+    /**
+     * Value of a lost position at distance 0, and the longest loss distance
+     */
+    private static final int LOSS = 128;
+    private static final int MAX_LOSS_DISTANCE = 127;
+
+    /**
+     * First bytes of every slice file, followed by the slice's four piece
+     * counts (see TablebaseIndex)
+     */
+    private static final byte[] MAGIC = "CKTB".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Length of a slice file's header, before the position values
+     */
+    static final int HEADER_SIZE = 8;
+
+    /**
+     * Slices found, and their values, indexed by slice key
+     */
+    private final TablebaseIndex[] slices = new TablebaseIndex[1 << 16];
+    private final ByteBuffer[] values = new ByteBuffer[1 << 16];
+
+    /**
+     * Largest number of pieces in any slice found
+     */
+    private int maxPieces;
+
+    /**
+     * Creates an empty tablebase, to which TablebaseGenerator adds slices
+     * as it finishes them.
+     */
+    Tablebase()
+    {
+    }
+
+    /**
+     * Opens the tablebase in a directory, mapping every slice file found in
+     * it.
+     *
+     * @param directory directory written by TablebaseGenerator
+     * @return the tablebase
+     * @throws IOException if the directory or a slice file cannot be read,
+     *                     or a slice file is not valid
+     */
+    public static Tablebase open(Path directory) throws IOException
+    {
+        Tablebase tablebase = new Tablebase();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "tb-*.cdb"))
+        {
+            for (Path file : files)
+            {
+                tablebase.addSlice(mapSlice(file));
+            }
+        }
+
+        return tablebase;
+    }
+
+    /**
+     * Maps a slice file and checks its header.
+     *
+     * @param file slice file
+     * @return the slice's values, starting with the header
+     * @throws IOException if the file cannot be read or is not valid
+     */
+    static MappedByteBuffer mapSlice(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.capacity() < HEADER_SIZE)
+            {
+                throw new IOException("Not a tablebase file: " + file);
+            }
+
+            for (int i = 0; i < MAGIC.length; i++)
+            {
+                if (buffer.get(i) != MAGIC[i])
+                {
+                    throw new IOException("Not a tablebase file: " + file);
+                }
+            }
+
+            TablebaseIndex slice = sliceOf(buffer);
+
+            if (buffer.capacity() != HEADER_SIZE + (long) slice.size)
+            {
+                throw new IOException("Tablebase file has the wrong length: " + file);
+            }
+
+            return buffer;
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IOException("Not a tablebase file: " + file, e);
+        }
+    }
+
+    /**
+     * Writes the header of a slice file into the first bytes of a buffer.
+     *
+     * @param slice slice the file holds
+     * @param buffer values of the slice, with HEADER_SIZE bytes of room first
+     */
+    static void writeHeader(TablebaseIndex slice, ByteBuffer buffer)
+    {
+        for (int i = 0; i < MAGIC.length; i++)
+        {
+            buffer.put(i, MAGIC[i]);
+        }
+
+        buffer.put(4, (byte) slice.stmMen);
+        buffer.put(5, (byte) slice.stmKings);
+        buffer.put(6, (byte) slice.oppMen);
+        buffer.put(7, (byte) slice.oppKings);
+    }
+
+    /**
+     * Reads the slice a file's header describes.
+     *
+     * @param buffer slice values, starting with the header
+     * @return the slice
+     */
+    private static TablebaseIndex sliceOf(ByteBuffer buffer)
+    {
+        return new TablebaseIndex(buffer.get(4), buffer.get(5), buffer.get(6), buffer.get(7));
+    }
+
+    /**
+     * Adds a slice, replacing any slice with the same piece counts.
+     *
+     * @param buffer slice values, starting with the header
+     */
+    void addSlice(ByteBuffer buffer)
+    {
+        TablebaseIndex slice = sliceOf(buffer);
+        slices[slice.key()] = slice;
+        values[slice.key()] = buffer;
+        maxPieces = Math.max(maxPieces, slice.pieces());
+    }
+
+    /**
+     * Returns whether the slice with the given key has been added.
+     *
+     * @param key slice key (see TablebaseIndex.key())
+     * @return true if its values are available
+     */
+    boolean hasSlice(int key)
+    {
+        return slices[key] != null;
+    }
+
+    /**
+     * Returns the largest number of pieces of any position the tablebase
+     * covers.  Positions with more pieces are never found, so callers can
+     * skip probing them.
+     *
+     * @return pieces of both sides, 0 for an empty tablebase
+     */
+    public int getMaxPieces()
+    {
+        return maxPieces;
+    }
+
+    /**
+     * Looks up a position on a board.
+     *
+     * @param board position to look up
+     * @param sideToMove GameBoard.PLAYER or GameBoard.ENEMY
+     * @return value for the side to move (see the class description), or
+     *         UNKNOWN if the tablebase does not cover the position
+     */
+    public int probe(GameBoard board, int sideToMove)
+    {
+        return probe(board.getPieces(GameBoard.PLAYER), board.getPieces(GameBoard.ENEMY),
+                board.getKings(), sideToMove);
+    }
+
+    /**
+     * Looks up a position given as bitboards (numbered as in Bitboard).
+     *
+     * @param player squares holding PLAYER pieces
+     * @param enemy squares holding ENEMY pieces
+     * @param kings squares holding a king of either side
+     * @param sideToMove GameBoard.PLAYER or GameBoard.ENEMY
+     * @return value for the side to move, or UNKNOWN
+     */
+    int probe(int player, int enemy, int kings, int sideToMove)
+    {
+        // turn the board around so the side to move plays up the board
+        if (sideToMove == GameBoard.PLAYER)
+        {
+            return probeNormalized(player, enemy, kings);
+        }
+
+        return probeNormalized(Integer.reverse(enemy), Integer.reverse(player),
+                Integer.reverse(kings));
+    }
+
+    /**
+     * Looks up a position with the side to move playing up the board.
+     *
+     * @param stm squares of the side to move's pieces
+     * @param opp squares of the opponent's pieces
+     * @param kings squares holding a king of either side
+     * @return value for the side to move, or UNKNOWN
+     */
+    int probeNormalized(int stm, int opp, int kings)
+    {
+        // a side without pieces has lost; such positions have no slice
+        if (stm == 0)
+        {
+            return LOSS;
+        }
+        if (opp == 0)
+        {
+            return WIN;
+        }
+
+        int key = TablebaseIndex.key(stm, opp, kings);
+        TablebaseIndex slice = slices[key];
+
+        if (slice == null)
+        {
+            return UNKNOWN;
+        }
+
+        return values[key].get(HEADER_SIZE + slice.index(stm, opp, kings)) & 0xFF;
+    }
+
+    /**
+     * Returns the value of a win at the given distance.
+     *
+     * @param distance plies to the next capture or crowning
+     * @return value byte, with long distances shortened to the longest stored
+     */
+    static int win(int distance)
+    {
+        return WIN + Math.min(distance, MAX_WIN_DISTANCE);
+    }
+
+    /**
+     * Returns the value of a loss at the given distance.
+     *
+     * @param distance plies to the next capture or crowning
+     * @return value byte, with long distances shortened to the longest stored
+     */
+    static int loss(int distance)
+    {
+        return LOSS + Math.min(distance, MAX_LOSS_DISTANCE);
+    }
+
+    /**
+     * Returns whether a value is a win for the side to move.
+     *
+     * @param value value returned by probe()
+     * @return true for a win
+     */
+    public static boolean isWin(int value)
+    {
+        return value >= WIN && value < LOSS;
+    }
+
+    /**
+     * Returns whether a value is a loss for the side to move.
+     *
+     * @param value value returned by probe()
+     * @return true for a loss
+     */
+    public static boolean isLoss(int value)
+    {
+        return value >= LOSS;
+    }
+
+    /**
+     * Returns the distance of a win or loss.
+     *
+     * @param value value returned by probe()
+     * @return plies to the next capture or crowning, 0 for a draw
+     */
+    public static int distance(int value)
+    {
+        if (isLoss(value))
+        {
+            return value - LOSS;
+        }
+
+        return isWin(value) ? value - WIN : 0;
+    }
+}
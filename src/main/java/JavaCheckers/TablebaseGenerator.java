@@ -0,0 +1,683 @@
+package JavaCheckers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TablebaseGenerator works out the endgame tablebase read by Tablebase, for
+ * every position with up to a given number of pieces.  It runs offline,
+ * from the command line:
+ *
+ * <pre>
+ * java -cp java-checkers.jar JavaCheckers.TablebaseGenerator directory
+ *      [maxPieces] [-threads n]
+ * </pre>
+ *
+ * <p> Slices (see TablebaseIndex) are solved smallest first: by number of
+ * pieces, then by number of men.  A capture leads to a slice with fewer
+ * pieces and a crowning to one with fewer men, so every move that leaves
+ * a slice leads to one already solved.  A move that does neither leads to
+ * the partner slice, the same pieces with the other side to move, so each
+ * slice is solved together with its partner.
+ *
+ * <p> A pair of slices is solved by retrograde analysis, in passes.  Pass 0
+ * finds the positions where the side to move has no move (lost at distance
+ * 0), and pass 1 looks at every position, which settles the captures and
+ * crownings into solved slices.  After that, the positions settled by pass
+ * n are taken back one move to find the positions that lead to them, and
+ * only those are looked at in pass n + 1: a position is won at distance
+ * n + 1 if one of its moves leads to a lost position, and lost if all of
+ * them lead to won positions.  When a pass settles nothing, the positions
+ * left are draws.
+ *
+ * <p> The positions of a pass are split between threads in chunks.  Each
+ * thread writes its results to a separate array, which is only copied into
+ * the values once the pass is over, so every thread reads the same values
+ * whatever order the chunks run in, and the result does not depend on the
+ * number of threads.
+ *
+ * <p> Each pair of slices is written to temporary files that are renamed
+ * once both are complete, so an interrupted run leaves no partial slices.
+ * Running again with the same directory skips the slices already there and
+ * carries on from the first missing one.
+ *
+ * @author Jason Hamilton
+ */
+public class TablebaseGenerator
+{
+    /**
+     * Largest number of pieces generated if none is given
+     */
+    public static final int DEFAULT_MAX_PIECES = 6;
+
+    /**
+     * Positions in one chunk of work handed to a thread
+     */
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    /**
+     * Directory the slice files are written to
+     */
+    private final Path directory;
+
+    /**
+     * Largest number of pieces to generate
+     */
+    private final int maxPieces;
+
+    /**
+     * Threads to solve with
+     */
+    private final ForkJoinPool pool;
+    private final int threads;
+
+    /**
+     * Slices solved so far, read when a move leaves the pair being solved
+     */
+    private final Tablebase tablebase = new Tablebase();
+
+    /**
+     * The pair of slices being solved: the slice, and its partner unless the
+     * slice is its own partner (the same pieces on both sides)
+     */
+    private TablebaseIndex[] pair;
+
+    /**
+     * Value of every position of each slice of the pair, 0 until settled
+     */
+    private byte[][] values;
+
+    /**
+     * Results of the current pass, copied into values once it is over
+     */
+    private byte[][] results;
+
+    /**
+     * Positions to look at in the next pass
+     */
+    private byte[][] candidates;
+
+    /**
+     * Constructor.
+     *
+     * @param outputDirectory directory to write the slice files to
+     * @param pieces largest number of pieces to generate, at least 2
+     * @param threadCount number of threads to solve with, at least 1
+     */
+    public TablebaseGenerator(Path outputDirectory, int pieces, int threadCount)
+    {
+        directory = outputDirectory;
+        maxPieces = Math.max(2, pieces);
+        threads = Math.max(1, threadCount);
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Solves every slice with up to maxPieces pieces that is not already
+     * in the directory, printing a line as each pair of slices is done.
+     *
+     * @return the tablebase, with every slice mapped
+     * @throws IOException if a slice file cannot be read or written
+     */
+    public Tablebase generate() throws IOException
+    {
+        Files.createDirectories(directory);
+
+        try
+        {
+            for (int pieces = 2; pieces <= maxPieces; pieces++)
+            {
+                for (int men = 0; men <= pieces; men++)
+                {
+                    for (int stmMen = 0; stmMen <= men; stmMen++)
+                    {
+                        for (int stmKings = 0; stmKings <= pieces - men; stmKings++)
+                        {
+                            int oppMen = men - stmMen;
+                            int oppKings = pieces - men - stmKings;
+                            int stmPieces = stmMen + stmKings;
+                            int oppPieces = oppMen + oppKings;
+
+                            if (stmPieces == 0 || oppPieces == 0
+                                    || stmPieces > TablebaseIndex.MAX_SIDE
+                                    || oppPieces > TablebaseIndex.MAX_SIDE)
+                            {
+                                continue;
+                            }
+
+                            TablebaseIndex slice = new TablebaseIndex(stmMen, stmKings, oppMen, oppKings);
+
+                            // a pair is solved once, when its lower key comes up
+                            if (slice.key() <= slice.partnerKey())
+                            {
+                                solvePair(slice);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        return tablebase;
+    }
+
+    /**
+     * Solves a slice and its partner, or maps them if both files exist.
+     *
+     * @param slice slice with the lower key of the pair
+     * @throws IOException if a slice file cannot be read or written
+     */
+    private void solvePair(TablebaseIndex slice) throws IOException
+    {
+        if (slice.key() == slice.partnerKey())
+        {
+            pair = new TablebaseIndex[] {slice};
+        }
+        else
+        {
+            pair = new TablebaseIndex[] {slice, new TablebaseIndex(slice.oppMen,
+                    slice.oppKings, slice.stmMen, slice.stmKings)};
+        }
+
+        boolean done = true;
+
+        for (TablebaseIndex side : pair)
+        {
+            done &= Files.exists(directory.resolve(side.fileName()));
+        }
+
+        if (done)
+        {
+            for (TablebaseIndex side : pair)
+            {
+                tablebase.addSlice(Tablebase.mapSlice(directory.resolve(side.fileName())));
+            }
+
+            System.out.println(slice.fileName() + ": already generated");
+            return;
+        }
+
+        long start = System.nanoTime();
+        values = new byte[pair.length][];
+        results = new byte[pair.length][];
+        candidates = new byte[pair.length][];
+
+        for (int s = 0; s < pair.length; s++)
+        {
+            values[s] = new byte[pair[s].size];
+            results[s] = new byte[pair[s].size];
+            candidates[s] = new byte[pair[s].size];
+        }
+
+        long positions = runPass(0);
+        settle(false);
+        int passes = 1;
+
+        while (runPass(passes) > 0 && settle(true) > 0)
+        {
+            passes++;
+        }
+
+        writePair();
+
+        long wins = 0;
+        long losses = 0;
+
+        for (byte[] sideValues : values)
+        {
+            for (byte value : sideValues)
+            {
+                wins += Tablebase.isWin(value & 0xFF) ? 1 : 0;
+                losses += Tablebase.isLoss(value & 0xFF) ? 1 : 0;
+            }
+        }
+
+        String names = slice.fileName() + ((pair.length > 1) ? " and " + pair[1].fileName() : "");
+        System.out.printf("%s: %,d positions, %,d won, %,d lost, %,d drawn, %d passes, %,.1f s%n",
+                names, positions, wins, losses, positions - wins - losses,
+                passes, (System.nanoTime() - start) / 1e9);
+
+        values = null;
+        results = null;
+        candidates = null;
+    }
+
+    /**
+     * Looks at the positions of one pass and records the ones it settles in
+     * results.  Pass 0 and pass 1 look at every position, later passes only
+     * at the candidates.
+     *
+     * @param pass pass number
+     * @return for pass 0 the number of positions, otherwise the number of
+     *         positions looked at
+     */
+    private long runPass(int pass)
+    {
+        return forEachChunk((worker, s, from, to) ->
+        {
+            byte[] sideValues = values[s];
+            byte[] sideCandidates = candidates[s];
+            long count = 0;
+
+            for (int index = from; index < to; index++)
+            {
+                if (pass > 1)
+                {
+                    if (sideCandidates[index] == 0)
+                    {
+                        continue;
+                    }
+
+                    sideCandidates[index] = 0;
+                }
+
+                if (sideValues[index] != 0 || !worker.load(pair[s], index))
+                {
+                    continue;
+                }
+
+                results[s][index] = (byte) worker.solve(s, pass);
+                count++;
+            }
+
+            return count;
+        });
+    }
+
+    /**
+     * Copies the results of a pass into the values, and marks the positions
+     * that lead to the newly settled ones as candidates for the next pass.
+     *
+     * @param markCandidates false to skip marking, when the next pass looks
+     *                       at every position anyway
+     * @return number of positions settled by the pass
+     */
+    private long settle(boolean markCandidates)
+    {
+        return forEachChunk((worker, s, from, to) ->
+        {
+            byte[] sideResults = results[s];
+            long count = 0;
+
+            for (int index = from; index < to; index++)
+            {
+                if (sideResults[index] == 0)
+                {
+                    continue;
+                }
+
+                values[s][index] = sideResults[index];
+                sideResults[index] = 0;
+                count++;
+
+                if (markCandidates)
+                {
+                    worker.markPredecessors(s, index);
+                }
+            }
+
+            return count;
+        });
+    }
+
+    /**
+     * Writes the pair's slices to temporary files, renames them once both
+     * are written, and adds them to the tablebase.
+     *
+     * @throws IOException if a file cannot be written
+     */
+    private void writePair() throws IOException
+    {
+        Path[] temporary = new Path[pair.length];
+
+        for (int s = 0; s < pair.length; s++)
+        {
+            temporary[s] = directory.resolve(pair[s].fileName() + ".tmp");
+            ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_SIZE);
+            Tablebase.writeHeader(pair[s], header);
+
+            try (FileChannel channel = FileChannel.open(temporary[s], StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+            {
+                ByteBuffer body = ByteBuffer.wrap(values[s]);
+
+                while (header.hasRemaining())
+                {
+                    channel.write(header);
+                }
+                while (body.hasRemaining())
+                {
+                    channel.write(body);
+                }
+
+                channel.force(true);
+            }
+        }
+
+        for (int s = 0; s < pair.length; s++)
+        {
+            Path file = directory.resolve(pair[s].fileName());
+            Files.move(temporary[s], file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            tablebase.addSlice(Tablebase.mapSlice(file));
+        }
+    }
+
+    /**
+     * Runs a piece of work over every position of the pair, split into
+     * chunks shared between the threads.  Each thread has its own Worker.
+     *
+     * @param work work to run on each chunk
+     * @return sum of the counts returned by the chunks
+     */
+    private long forEachChunk(ChunkWork work)
+    {
+        int firstChunks = (pair[0].size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int totalChunks = firstChunks
+                + ((pair.length > 1) ? (pair[1].size + CHUNK_SIZE - 1) / CHUNK_SIZE : 0);
+        AtomicInteger nextChunk = new AtomicInteger();
+        List<Callable<Long>> tasks = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++)
+        {
+            tasks.add(() ->
+            {
+                Worker worker = new Worker();
+                long count = 0;
+                int chunk;
+
+                while ((chunk = nextChunk.getAndIncrement()) < totalChunks)
+                {
+                    int s = (chunk < firstChunks) ? 0 : 1;
+                    int from = (chunk - ((s == 0) ? 0 : firstChunks)) * CHUNK_SIZE;
+                    int to = Math.min(pair[s].size, from + CHUNK_SIZE);
+                    count += work.run(worker, s, from, to);
+                }
+
+                return count;
+            });
+        }
+
+        long total = 0;
+
+        for (Future<Long> result : pool.invokeAll(tasks))
+        {
+            try
+            {
+                total += result.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("tablebase generation interrupted", e);
+            }
+            catch (ExecutionException e)
+            {
+                throw new IllegalStateException("tablebase generation failed", e.getCause());
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Work done on one chunk of positions.
+     */
+    private interface ChunkWork
+    {
+        /**
+         * @param worker the thread's board and buffers
+         * @param s slice of the pair, 0 or 1
+         * @param from first index of the chunk
+         * @param to index after the chunk's last
+         * @return count to add to the total
+         */
+        long run(Worker worker, int s, int from, int to);
+    }
+
+    /**
+     * A thread's board and move buffers.  Positions are set up on the board
+     * with the side to move as PLAYER.
+     */
+    private final class Worker
+    {
+        private final GameBoard board = new GameBoard();
+        private final int[] moves = new int[AISearch.MAX_MOVES];
+        private final int[] captures = new int[AISearch.MAX_MOVES];
+        private final MoveUndo undo = new MoveUndo();
+        private final int[] position = new int[3];
+
+        /**
+         * Sets up the position with the given index on the board.
+         *
+         * @param slice slice the index belongs to
+         * @param index index of the position
+         * @return false if no position has the index
+         */
+        boolean load(TablebaseIndex slice, int index)
+        {
+            if (!slice.position(index, position))
+            {
+                return false;
+            }
+
+            board.setPosition(position[0], position[1], position[2]);
+            return true;
+        }
+
+        /**
+         * Tries to settle the position on the board in the given pass.
+         *
+         * @param s slice of the pair the position belongs to
+         * @param pass pass number
+         * @return the position's value, or 0 if it is not settled yet
+         */
+        int solve(int s, int pass)
+        {
+            int moveCount = board.getLegalTurns(GameBoard.PLAYER, moves, captures, 0);
+
+            if (moveCount == 0)
+            {
+                return Tablebase.loss(0);
+            }
+
+            if (pass == 0)
+            {
+                return 0;
+            }
+
+            boolean allLost = true;
+
+            for (int i = 0; i < moveCount; i++)
+            {
+                int value = successorValue(s, moves[i], captures[i]);
+
+                if (Tablebase.isLoss(value))
+                {
+                    return Tablebase.win(pass);
+                }
+
+                allLost &= Tablebase.isWin(value);
+            }
+
+            return allLost ? Tablebase.loss(pass) : 0;
+        }
+
+        /**
+         * Returns the value of the position after a move, for the opponent.
+         *
+         * @param s slice of the pair the position before the move belongs to
+         * @param move packed move
+         * @param captured squares the move captures
+         * @return value of the position, 0 if it is not settled yet
+         */
+        private int successorValue(int s, int move, int captured)
+        {
+            board.makeMove(move, captured, undo);
+
+            // the opponent plays up the board once it is turned around
+            int stm = Integer.reverse(board.getPieces(GameBoard.ENEMY));
+            int opp = Integer.reverse(board.getPieces(GameBoard.PLAYER));
+            int kings = Integer.reverse(board.getKings());
+            int value;
+
+            if (captured != 0 || PackedMove.promotes(move))
+            {
+                value = tablebase.probeNormalized(stm, opp, kings);
+
+                if (value == Tablebase.UNKNOWN)
+                {
+                    throw new IllegalStateException("Missing tablebase slice for "
+                            + Integer.toHexString(TablebaseIndex.key(stm, opp, kings)));
+                }
+            }
+            else
+            {
+                int partner = pair.length - 1 - s;
+                value = values[partner][pair[partner].index(stm, opp, kings)] & 0xFF;
+            }
+
+            board.unmakeMove(move, undo);
+            return value;
+        }
+
+        /**
+         * Marks the positions that lead to a settled position by a move that
+         * neither captures nor crowns as candidates for the next pass.  In
+         * those positions the opponent was to move, and one of its pieces
+         * was a step back from where it stands now.
+         *
+         * @param s slice of the pair the settled position belongs to
+         * @param index index of the settled position
+         */
+        void markPredecessors(int s, int index)
+        {
+            pair[s].position(index, position);
+
+            int stm = position[0];
+            int opp = position[1];
+            int kings = position[2];
+            int empty = ~(stm | opp);
+            int partner = pair.length - 1 - s;
+            byte[] partnerValues = values[partner];
+            byte[] partnerCandidates = candidates[partner];
+
+            for (int pieces = opp; pieces != 0; pieces &= pieces - 1)
+            {
+                int to = Integer.numberOfTrailingZeros(pieces);
+                boolean king = (kings & (1 << to)) != 0;
+
+                // the opponent's men move down the board, so they came from above
+                int lastDirection = king ? Bitboard.DOWN_RIGHT : Bitboard.UP_RIGHT;
+
+                for (int direction = Bitboard.UP_LEFT; direction <= lastDirection; direction++)
+                {
+                    int from = Bitboard.NEIGHBOR[direction][to];
+
+                    if (from < 0 || (empty & (1 << from)) == 0)
+                    {
+                        continue;
+                    }
+
+                    int moved = (1 << from) | (1 << to);
+                    int before = partnerIndex(partner, opp ^ moved, stm,
+                            king ? kings ^ moved : kings);
+
+                    if (partnerValues[before] == 0)
+                    {
+                        partnerCandidates[before] = 1;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the index in the partner slice of a position with the
+         * opponent to move.
+         *
+         * @param partner partner slice of the pair
+         * @param opp squares of the opponent's pieces, the side to move
+         * @param stm squares of the other side's pieces
+         * @param kings squares holding a king of either side
+         * @return index of the position turned around
+         */
+        private int partnerIndex(int partner, int opp, int stm, int kings)
+        {
+            return pair[partner].index(Integer.reverse(opp), Integer.reverse(stm),
+                    Integer.reverse(kings));
+        }
+    }
+
+    /**
+     * Generates a tablebase from the command line (see the class description).
+     *
+     * @param args directory, then optionally the largest number of pieces
+     *             and -threads n
+     */
+    public static void main(String[] args)
+    {
+        Path directory = null;
+        int pieces = DEFAULT_MAX_PIECES;
+        int threadCount = Runtime.getRuntime().availableProcessors();
+
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                if (args[i].equals("-threads"))
+                {
+                    threadCount = Integer.parseInt(args[++i]);
+                }
+                else if (directory == null)
+                {
+                    directory = Paths.get(args[i]);
+                }
+                else
+                {
+                    pieces = Integer.parseInt(args[i]);
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            directory = null;
+        }
+
+        if (directory == null)
+        {
+            System.err.println("usage: TablebaseGenerator directory [maxPieces] [-threads n]");
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+
+        try
+        {
+            Tablebase tablebase = new TablebaseGenerator(directory, pieces, threadCount).generate();
+            System.out.printf("tablebase of up to %d pieces in %s, %,.1f s%n",
+                    tablebase.getMaxPieces(), directory, (System.nanoTime() - start) / 1e9);
+        }
+        catch (IOException e)
+        {
+            System.err.println("tablebase generation failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package JavaCheckers;
+
+/**
+ * TablebaseIndex numbers the positions of one tablebase slice: all the
+ * positions with a given number of men and kings for the side to move and
+ * for its opponent.  Every position of the slice gets an index from 0 to
+ * size - 1, so a slice is stored as one byte per index (see Tablebase).
+ *
+ * <p> Positions are always numbered with the side to move playing as
+ * PLAYER (moving up the board).  A position with ENEMY to move is turned
+ * into one with PLAYER to move first, by turning the board around
+ * (Integer.reverse(), which takes square s to 31 - s) and swapping the
+ * colours; see Tablebase.probe().
+ *
+ * <p> The index is built from four combinatorial ranks, one for each group
+ * of pieces, each counting only the squares the group can stand on:
+ *
+ * <pre>
+ *   men of the side to move     squares 4-31 (a man on row 0 is crowned)
+ *   men of the opponent         squares 0-27, less those taken by the above
+ *   kings of the side to move   squares not taken by men
+ *   kings of the opponent       squares not taken by men or the above kings
+ * </pre>
+ *
+ * The opponent's men are given room for all 28 of their squares, even
+ * though some of them may be taken by the other side's men, so a few
+ * indexes are not positions at all (position() returns false for them).
+ *
+ * @author Jason Hamilton
+ */
+final class TablebaseIndex
+{
+    /**
+     * Most pieces one side can have
+     */
+    static final int MAX_SIDE = 12;
+
+    /**
+     * Squares a man of the side to move cannot stand on (its crowning row)
+     */
+    private static final int STM_MAN_EXCLUDED = Bitboard.PLAYER_KING_ROW;
+
+    /**
+     * Squares a man of the opponent cannot stand on (its crowning row)
+     */
+    private static final int OPP_MAN_EXCLUDED = Bitboard.ENEMY_KING_ROW;
+
+    /**
+     * CHOOSE[n][k] is the number of ways to pick k of n squares
+     */
+    private static final int[][] CHOOSE = new int[33][MAX_SIDE + 1];
+
+    static
+    {
+        for (int n = 0; n <= 32; n++)
+        {
+            CHOOSE[n][0] = 1;
+
+            for (int k = 1; k <= MAX_SIDE && n > 0; k++)
+            {
+                CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + CHOOSE[n - 1][k];
+            }
+        }
+    }
+
+    final int stmMen;
+    final int stmKings;
+    final int oppMen;
+    final int oppKings;
+
+    /**
+     * Number of indexes in the slice
+     */
+    final int size;
+
+    // number of ranks of each group but the first
+    private final int oppMenRadix;
+    private final int stmKingRadix;
+    private final int oppKingRadix;
+
+    /**
+     * Constructor.
+     *
+     * @param stmMen men of the side to move
+     * @param stmKings kings of the side to move
+     * @param oppMen men of the opponent
+     * @param oppKings kings of the opponent
+     * @throws IllegalArgumentException if a side has more than MAX_SIDE
+     *                                  pieces, or the slice is too large
+     */
+    TablebaseIndex(int stmMen, int stmKings, int oppMen, int oppKings)
+    {
+        if (stmMen < 0 || stmKings < 0 || oppMen < 0 || oppKings < 0
+                || stmMen + stmKings > MAX_SIDE || oppMen + oppKings > MAX_SIDE)
+        {
+            throw new IllegalArgumentException("Not a tablebase slice: "
+                    + stmMen + "/" + stmKings + " against " + oppMen + "/" + oppKings);
+        }
+
+        this.stmMen = stmMen;
+        this.stmKings = stmKings;
+        this.oppMen = oppMen;
+        this.oppKings = oppKings;
+
+        int men = stmMen + oppMen;
+        oppMenRadix = CHOOSE[28][oppMen];
+        stmKingRadix = CHOOSE[32 - men][stmKings];
+        oppKingRadix = CHOOSE[32 - men - stmKings][oppKings];
+
+        long total = (long) CHOOSE[28][stmMen] * oppMenRadix * stmKingRadix * oppKingRadix;
+
+        if (total > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Tablebase slice too large: " + total);
+        }
+
+        size = (int) total;
+    }
+
+    /**
+     * Returns the key of the slice with the given piece counts, used to
+     * find a slice in an array.
+     *
+     * @param stmMen men of the side to move
+     * @param stmKings kings of the side to move
+     * @param oppMen men of the opponent
+     * @param oppKings kings of the opponent
+     * @return key from 0 to 65535
+     */
+    static int key(int stmMen, int stmKings, int oppMen, int oppKings)
+    {
+        return stmMen | (stmKings << 4) | (oppMen << 8) | (oppKings << 12);
+    }
+
+    /**
+     * Returns the key of the slice a position belongs to.
+     *
+     * @param stm squares of the side to move's pieces
+     * @param opp squares of the opponent's pieces
+     * @param kings squares holding a king of either side
+     * @return key from 0 to 65535
+     */
+    static int key(int stm, int opp, int kings)
+    {
+        int stmKings = Integer.bitCount(stm & kings);
+        int oppKings = Integer.bitCount(opp & kings);
+
+        return key(Integer.bitCount(stm) - stmKings, stmKings,
+                Integer.bitCount(opp) - oppKings, oppKings);
+    }
+
+    /**
+     * Returns this slice's key.
+     *
+     * @return key from 0 to 65535
+     */
+    int key()
+    {
+        return key(stmMen, stmKings, oppMen, oppKings);
+    }
+
+    /**
+     * Returns the key of the slice reached from this one by a move that
+     * neither captures nor crowns: the same pieces, with the other side to
+     * move.
+     *
+     * @return key of the partner slice
+     */
+    int partnerKey()
+    {
+        return key(oppMen, oppKings, stmMen, stmKings);
+    }
+
+    /**
+     * Returns the total number of pieces in the slice's positions.
+     *
+     * @return pieces of both sides
+     */
+    int pieces()
+    {
+        return stmMen + stmKings + oppMen + oppKings;
+    }
+
+    /**
+     * Returns the name of the file the slice is stored in, such as
+     * "tb-2-1-1-0.cdb" for two men and a king against one man.
+     *
+     * @return file name
+     */
+    String fileName()
+    {
+        return "tb-" + stmMen + "-" + stmKings + "-" + oppMen + "-" + oppKings + ".cdb";
+    }
+
+    /**
+     * Returns the index of a position of this slice.
+     *
+     * @param stm squares of the side to move's pieces (moving up the board)
+     * @param opp squares of the opponent's pieces
+     * @param kings squares holding a king of either side
+     * @return index from 0 to size - 1
+     */
+    int index(int stm, int opp, int kings)
+    {
+        int stmManSquares = stm & ~kings;
+        int oppManSquares = opp & ~kings;
+        int men = stmManSquares | oppManSquares;
+        int stmKingSquares = stm & kings;
+
+        int index = rank(stmManSquares, STM_MAN_EXCLUDED);
+        index = index * oppMenRadix + rank(oppManSquares, stmManSquares);
+        index = index * stmKingRadix + rank(stmKingSquares, men);
+        return index * oppKingRadix + rank(opp & kings, men | stmKingSquares);
+    }
+
+    /**
+     * Finds the position with the given index.
+     *
+     * @param index index from 0 to size - 1
+     * @param position receives the squares of the side to move's pieces,
+     *                 the opponent's pieces and the kings, in that order
+     * @return false if no position has the index
+     */
+    boolean position(int index, int[] position)
+    {
+        int oppKingRank = index % oppKingRadix;
+        index /= oppKingRadix;
+        int stmKingRank = index % stmKingRadix;
+        index /= stmKingRadix;
+        int oppManRank = index % oppMenRadix;
+        int stmManRank = index / oppMenRadix;
+
+        int stmManSquares = unrank(stmManRank, stmMen, STM_MAN_EXCLUDED);
+
+        // the opponent's men only have room for the squares left below row 7
+        int room = 28 - Integer.bitCount(stmManSquares & ~OPP_MAN_EXCLUDED);
+
+        if (oppManRank >= CHOOSE[room][oppMen])
+        {
+            return false;
+        }
+
+        int oppManSquares = unrank(oppManRank, oppMen, stmManSquares);
+        int men = stmManSquares | oppManSquares;
+        int stmKingSquares = unrank(stmKingRank, stmKings, men);
+        int oppKingSquares = unrank(oppKingRank, oppKings, men | stmKingSquares);
+
+        position[0] = stmManSquares | stmKingSquares;
+        position[1] = oppManSquares | oppKingSquares;
+        position[2] = stmKingSquares | oppKingSquares;
+        return true;
+    }
+
+    /**
+     * Ranks a set of squares among the squares not taken, in colex order:
+     * the i-th square (from 1) at free position p adds CHOOSE[p][i].
+     *
+     * @param squares squares to rank
+     * @param taken squares that are skipped when counting positions
+     * @return rank of the set
+     */
+    private static int rank(int squares, int taken)
+    {
+        int rank = 0;
+        int i = 0;
+
+        while (squares != 0)
+        {
+            int square = Integer.numberOfTrailingZeros(squares);
+            squares &= squares - 1;
+
+            int free = square - Integer.bitCount(taken & ((1 << square) - 1));
+            rank += CHOOSE[free][++i];
+        }
+
+        return rank;
+    }
+
+    /**
+     * Turns a rank from rank() back into a set of squares.
+     *
+     * @param rank rank of the set
+     * @param count number of squares in the set
+     * @param taken squares that are skipped when counting positions
+     * @return squares of the set
+     */
+    private static int unrank(int rank, int count, int taken)
+    {
+        int squares = 0;
+
+        for (int i = count; i > 0; i--)
+        {
+            // largest free position p with CHOOSE[p][i] <= rank
+            int free = i - 1;
+
+            while (CHOOSE[free + 1][i] <= rank)
+            {
+                free++;
+            }
+
+            rank -= CHOOSE[free][i];
+            squares |= 1 << freeSquare(free, taken);
+        }
+
+        return squares;
+    }
+
+    /**
+     * Returns the square at a free position, counting only squares not taken.
+     *
+     * @param free free position, from 0
+     * @param taken squares that are skipped
+     * @return square number (0-31)
+     */
+    private static int freeSquare(int free, int taken)
+    {
+        int square = 0;
+
+        while (true)
+        {
+            if ((taken & (1 << square)) == 0 && free-- == 0)
+            {
+                return square;
+            }
+
+            square++;
+        }
+    }
+}
@@ -0,0 +1,587 @@
+package JavaCheckers;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tournament plays engine against engine from the command line, to measure
+ * whether a change to the search or evaluation makes the AI stronger.  Two
+ * engine settings, A and B, play each other with CheckersEngine only, so
+ * no window is opened.  Games run in parallel, one per thread, each with
+ * its own single threaded engines.
+ *
+ * <p> Each game starts with a few random turns so the games differ, and
+ * every random opening is played twice with the colours swapped, so
+ * neither setting profits from a lucky opening or from moving first.  A
+ * game is a draw if a position repeats three times or it reaches the turn
+ * limit.
+ *
+ * <p> The result is reported as the Elo difference of A over B with a 95%
+ * error bar, together with games per second and each side's search speed.
+ *
+ * @author Jason Hamilton
+ */
+public class Tournament
+{
+    /**
+     * Default number of games
+     */
+    public static final int DEFAULT_GAMES = 100;
+
+    /**
+     * Default number of random turns that start each game
+     */
+    public static final int DEFAULT_OPENING_TURNS = 4;
+
+    /**
+     * Default number of turns after which a game is a draw
+     */
+    public static final int DEFAULT_MAX_TURNS = 200;
+
+    /**
+     * Default size in megabytes of each engine's transposition table, kept
+     * small since every game running has two
+     */
+    public static final int DEFAULT_TABLE_SIZE_MB = 8;
+
+    /**
+     * Times a position must occur for the game to be drawn by repetition
+     */
+    private static final int REPETITIONS = 3;
+
+    /**
+     * Settings of one side of the match
+     */
+    static final class Side
+    {
+        /**
+         * Deepest search to try, or 0 for the engine's default (no depth
+         * limit when there is a time limit)
+         */
+        int maxLevels;
+
+        /**
+         * Milliseconds allowed for each search, 0 for no limit
+         */
+        long timeLimit;
+
+        /**
+         * Evaluator to score positions with, or null for the default
+         */
+        Evaluator evaluator;
+
+        /**
+         * True to resolve captures at the leaves of the search
+         */
+        boolean quiescence = true;
+
+        /**
+         * Total positions searched and nanoseconds spent searching, over
+         * all games
+         */
+        long nodes;
+        long searchTime;
+    }
+
+    /**
+     * Result of one game, from A's side
+     */
+    private static final class GameResult
+    {
+        double score;
+        long nodesA;
+        long timeA;
+        long nodesB;
+        long timeB;
+    }
+
+    /**
+     * Settings of the two sides
+     */
+    private final Side sideA;
+    private final Side sideB;
+
+    /**
+     * Random turns that start each game, and turns after which it is drawn
+     */
+    private int openingTurns = DEFAULT_OPENING_TURNS;
+    private int maxTurns = DEFAULT_MAX_TURNS;
+
+    /**
+     * Size of each engine's transposition table
+     */
+    private int tableSizeMB = DEFAULT_TABLE_SIZE_MB;
+
+    /**
+     * Tablebase and opening book given to both sides, or null
+     */
+    private Tablebase tablebase;
+    private OpeningBook openingBook;
+
+    /**
+     * Games won by A, drawn and lost, so far
+     */
+    private int wins;
+    private int draws;
+    private int losses;
+
+    /**
+     * Constructor.
+     *
+     * @param a settings of side A
+     * @param b settings of side B
+     */
+    Tournament(Side a, Side b)
+    {
+        sideA = a;
+        sideB = b;
+    }
+
+    /**
+     * Sets how many random turns start each game.
+     *
+     * @param turns number of turns, 0 to start every game from the
+     *              starting position
+     */
+    void setOpeningTurns(int turns)
+    {
+        openingTurns = turns;
+    }
+
+    /**
+     * Sets the number of turns after which a game is a draw.
+     *
+     * @param turns turns of both sides together
+     */
+    void setMaxTurns(int turns)
+    {
+        maxTurns = turns;
+    }
+
+    /**
+     * Sets the size of each engine's transposition table.
+     *
+     * @param sizeMB size in megabytes
+     */
+    void setTableSize(int sizeMB)
+    {
+        tableSizeMB = sizeMB;
+    }
+
+    /**
+     * Gives both sides an endgame tablebase to probe.
+     *
+     * @param endgames tablebase, or null
+     */
+    void setTablebase(Tablebase endgames)
+    {
+        tablebase = endgames;
+    }
+
+    /**
+     * Gives both sides an opening book to play from.
+     *
+     * @param book opening book, or null
+     */
+    void setOpeningBook(OpeningBook book)
+    {
+        openingBook = book;
+    }
+
+    /**
+     * Plays the match.  Games are played in pairs with the same random
+     * opening, A taking the first move in one game of each pair and B in
+     * the other.  A line of progress is printed every tenth of the games.
+     *
+     * @param games number of games, rounded up to an even number
+     * @param threads number of games to play at the same time
+     * @param seed seed of the random openings, the same seed giving the
+     *             same openings
+     * @throws InterruptedException if interrupted while waiting for a game
+     * @throws ExecutionException if a game failed
+     */
+    void play(int games, int threads, long seed) throws InterruptedException, ExecutionException
+    {
+        Random random = new Random(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<GameResult>> results = new ArrayList<>();
+
+        try
+        {
+            for (int pair = 0; pair < (games + 1) / 2; pair++)
+            {
+                long openingSeed = random.nextLong();
+                results.add(pool.submit(() -> playGame(openingSeed, true)));
+                results.add(pool.submit(() -> playGame(openingSeed, false)));
+            }
+
+            int progressStep = Math.max(1, results.size() / 10);
+            long start = System.nanoTime();
+
+            for (int i = 0; i < results.size(); i++)
+            {
+                GameResult result = results.get(i).get();
+
+                if (result.score == 1)
+                {
+                    wins++;
+                }
+                else if (result.score == 0)
+                {
+                    losses++;
+                }
+                else
+                {
+                    draws++;
+                }
+
+                sideA.nodes += result.nodesA;
+                sideA.searchTime += result.timeA;
+                sideB.nodes += result.nodesB;
+                sideB.searchTime += result.timeB;
+
+                if ((i + 1) % progressStep == 0 || i + 1 == results.size())
+                {
+                    System.out.printf("%d games: +%d =%d -%d, %.1f games/s%n", i + 1, wins,
+                            draws, losses, (i + 1) / ((System.nanoTime() - start) / 1e9));
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one game.
+     *
+     * @param openingSeed seed of the game's random opening
+     * @param aMovesFirst true if A plays the first move (PLAYER), false if
+     *                    B does
+     * @return the result, 1 if A won, 0.5 for a draw and 0 if A lost
+     */
+    private GameResult playGame(long openingSeed, boolean aMovesFirst)
+    {
+        CheckersEngine engineA = createEngine(sideA);
+        CheckersEngine engineB = createEngine(sideB);
+        GameBoard board = engineA.getBoard();
+        GameResult result = new GameResult();
+        Map<Long, Integer> positions = new HashMap<>();
+
+        Random random = new Random(openingSeed);
+        int side = GameBoard.PLAYER;
+        int turn = 0;
+
+        while (true)
+        {
+            CheckersMove[] legal = board.getLegalTurns(side);
+
+            // a side with no move left has lost
+            if (legal == null)
+            {
+                boolean aLost = (side == GameBoard.PLAYER) == aMovesFirst;
+                result.score = aLost ? 0 : 1;
+                return result;
+            }
+
+            if (turn >= maxTurns)
+            {
+                result.score = 0.5;
+                return result;
+            }
+
+            CheckersMove move;
+
+            if (turn < openingTurns)
+            {
+                move = legal[random.nextInt(legal.length)];
+            }
+            else
+            {
+                boolean aToMove = (side == GameBoard.PLAYER) == aMovesFirst;
+                CheckersEngine engine = aToMove ? engineA : engineB;
+                Side settings = aToMove ? sideA : sideB;
+                int levels = settings.maxLevels;
+
+                // with only a time limit, the clock ends the search, not the default depth
+                if (levels <= 0)
+                {
+                    levels = (settings.timeLimit > 0) ? AISearch.MAX_LEVELS : engine.getMaxLevels();
+                }
+
+                long start = System.nanoTime();
+                AIMoveTest best = engine.search(side, levels, settings.timeLimit);
+                long elapsed = System.nanoTime() - start;
+
+                if (aToMove)
+                {
+                    result.nodesA += engine.getSearchNodes();
+                    result.timeA += elapsed;
+                }
+                else
+                {
+                    result.nodesB += engine.getSearchNodes();
+                    result.timeB += elapsed;
+                }
+
+                // a search that finds every move lost returns none; play on
+                move = best.hasMove() ? best.move : legal[0];
+            }
+
+            engineA.makeMove(move);
+            engineB.makeMove(move);
+            side = (side == GameBoard.PLAYER) ? GameBoard.ENEMY : GameBoard.PLAYER;
+            turn++;
+
+            if (positions.merge(board.getHash(side), 1, Integer::sum) >= REPETITIONS)
+            {
+                result.score = 0.5;
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Creates an engine for one side of a game.
+     *
+     * @param side settings of the side
+     * @return engine at the starting position
+     */
+    private CheckersEngine createEngine(Side side)
+    {
+        CheckersEngine engine = new CheckersEngine(tableSizeMB);
+        engine.setEvaluator(side.evaluator);
+        engine.setQuiescence(side.quiescence);
+        engine.setTablebase(tablebase);
+        engine.setOpeningBook(openingBook);
+        return engine;
+    }
+
+    /**
+     * Returns A's share of the points so far.
+     *
+     * @return points per game, from 0 to 1
+     */
+    double getScore()
+    {
+        return (wins + draws * 0.5) / (wins + draws + losses);
+    }
+
+    /**
+     * Returns the Elo difference of A over B that the games so far show.
+     *
+     * @return Elo difference, infinite if one side won every game
+     */
+    double getEloDifference()
+    {
+        return elo(getScore());
+    }
+
+    /**
+     * Returns half the width of the 95% confidence interval of the Elo
+     * difference, from the spread of the game results.
+     *
+     * @return error bar of getEloDifference()
+     */
+    double getEloError()
+    {
+        int games = wins + draws + losses;
+        double score = getScore();
+        double variance = (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2)
+                + losses * Math.pow(score, 2)) / games;
+        double margin = 1.96 * Math.sqrt(variance / games);
+
+        return (elo(Math.min(score + margin, 1)) - elo(Math.max(score - margin, 0))) / 2;
+    }
+
+    /**
+     * Converts an expected score to an Elo difference.
+     *
+     * @param score points per game, from 0 to 1
+     * @return Elo difference that gives the score
+     */
+    private static double elo(double score)
+    {
+        return 400 * Math.log10(score / (1 - score));
+    }
+
+    /**
+     * Returns the positions per second a side searched.
+     *
+     * @param side settings of the side, after play()
+     * @return nodes per second, over all its searches
+     */
+    private static double nodesPerSecond(Side side)
+    {
+        return side.searchTime == 0 ? 0 : side.nodes / (side.searchTime / 1e9);
+    }
+
+    /**
+     * Reads an on/off command line option.
+     *
+     * @param value "on" or "off"
+     * @return true for on
+     * @throws IllegalArgumentException for any other value
+     */
+    private static boolean parseSwitch(String value)
+    {
+        switch (value)
+        {
+            case "on":
+                return true;
+            case "off":
+                return false;
+            default:
+                throw new IllegalArgumentException(value);
+        }
+    }
+
+    /**
+     * Runs a match from the command line.
+     *
+     * <pre>
+     * java JavaCheckers.Tournament [-games n] [-threads n] [-openings turns]
+     *      [-maxturns n] [-seed n] [-table mb] [-tablebase dir] [-book file]
+     *      [-levels n] [-time ms] [-levelsA n] [-timeA ms] [-weightsA file]
+     *      [-quiescenceA on|off] [-levelsB n] [-timeB ms] [-weightsB file]
+     *      [-quiescenceB on|off]
+     * </pre>
+     *
+     * -levels and -time set both sides; the A and B options set one.  A
+     * side given a time but no levels searches as deep as its time allows.
+     *
+     * @param args command line options
+     */
+    public static void main(String[] args)
+    {
+        Side a = new Side();
+        Side b = new Side();
+        Tournament tournament = new Tournament(a, b);
+        int games = DEFAULT_GAMES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        boolean valid = true;
+
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                switch (args[i])
+                {
+                    case "-games":
+                        games = Integer.parseInt(args[++i]);
+                        break;
+                    case "-threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-openings":
+                        tournament.setOpeningTurns(Integer.parseInt(args[++i]));
+                        break;
+                    case "-maxturns":
+                        tournament.setMaxTurns(Integer.parseInt(args[++i]));
+                        break;
+                    case "-seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "-table":
+                        tournament.setTableSize(Integer.parseInt(args[++i]));
+                        break;
+                    case "-tablebase":
+                        tournament.setTablebase(Tablebase.open(Paths.get(args[++i])));
+                        break;
+                    case "-book":
+                        tournament.setOpeningBook(OpeningBook.open(Paths.get(args[++i])));
+                        break;
+                    case "-levels":
+                        a.maxLevels = b.maxLevels = Integer.parseInt(args[++i]);
+                        break;
+                    case "-time":
+                        a.timeLimit = b.timeLimit = Long.parseLong(args[++i]);
+                        break;
+                    case "-levelsA":
+                        a.maxLevels = Integer.parseInt(args[++i]);
+                        break;
+                    case "-timeA":
+                        a.timeLimit = Long.parseLong(args[++i]);
+                        break;
+                    case "-weightsA":
+                        a.evaluator = WeightedEvaluator.load(Paths.get(args[++i]));
+                        break;
+                    case "-quiescenceA":
+                        a.quiescence = parseSwitch(args[++i]);
+                        break;
+                    case "-levelsB":
+                        b.maxLevels = Integer.parseInt(args[++i]);
+                        break;
+                    case "-timeB":
+                        b.timeLimit = Long.parseLong(args[++i]);
+                        break;
+                    case "-weightsB":
+                        b.evaluator = WeightedEvaluator.load(Paths.get(args[++i]));
+                        break;
+                    case "-quiescenceB":
+                        b.quiescence = parseSwitch(args[++i]);
+                        break;
+                    default:
+                        valid = false;
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("tournament failed: " + e.getMessage());
+            System.exit(1);
+        }
+        catch (RuntimeException e)
+        {
+            valid = false;
+        }
+
+        if (!valid || games <= 0 || threads <= 0)
+        {
+            System.err.println("usage: Tournament [-games n] [-threads n] [-openings turns]"
+                    + " [-maxturns n] [-seed n] [-table mb] [-tablebase dir] [-book file]"
+                    + " [-levels n] [-time ms] [-levelsA n] [-timeA ms] [-weightsA file]"
+                    + " [-quiescenceA on|off] [-levelsB n] [-timeB ms] [-weightsB file]"
+                    + " [-quiescenceB on|off]");
+            System.err.println("  -time ms without -levels searches as deep as the time allows");
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+
+        try
+        {
+            tournament.play(games, threads, seed);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int played = tournament.wins + tournament.draws + tournament.losses;
+
+        System.out.printf("A vs B: +%d =%d -%d, score %.1f%%%n", tournament.wins,
+                tournament.draws, tournament.losses, tournament.getScore() * 100);
+        System.out.printf("Elo difference: %+.1f +/- %.1f (95%%)%n",
+                tournament.getEloDifference(), tournament.getEloError());
+        System.out.printf("%d games in %.1f s, %.2f games/s%n", played, seconds, played / seconds);
+        System.out.printf("nodes/s: A %,.0f, B %,.0f%n", nodesPerSecond(a), nodesPerSecond(b));
+    }
+}
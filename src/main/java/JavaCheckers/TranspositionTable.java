@@ -0,0 +1,289 @@
+package JavaCheckers;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The TranspositionTable remembers the results of positions AISearch has
+ * already searched, keyed by their Zobrist hash.  The same position can be
+ * reached through many different move orders, and with the table the
+ * search only has to work it out once.
+ *
+ * <p> The table has a fixed number of entries, chosen from a size in
+ * megabytes, and is stored in parallel primitive arrays so that it creates
+ * no objects while searching.  Each entry holds:
+ *
+ * <ul>
+ * <li> the full hash of the position, to tell it apart from other
+ *      positions that land in the same slot
+ * <li> the number of levels that were searched below it (depth)
+ * <li> the score, and whether it is exact or only a lower/upper bound
+ *      (alpha-beta cutoffs only prove one side of the score)
+ * <li> the best move found, to be tried first the next time
+ * </ul>
+ *
+ * <p> When two positions need the same slot, the one searched to the
+ * greater depth is kept, since it saved the most work.  Entries left over
+ * from previous searches are always replaced.
+ *
+ * <p> The table can be shared by several search threads without locking.
+ * An entry is three longs (check, data and score), and instead of the hash
+ * itself the check word holds hash ^ data ^ score.  If two threads write
+ * the same slot at once, or a thread reads a slot while it is being
+ * written, the three words no longer agree and the entry simply fails to
+ * match, the same as if it belonged to another position.
+ *
+ * @author Jason Hamilton
+ */
+public class TranspositionTable
+{
+    /**
+     * Bound type: the stored score is the exact score of the position
+     */
+    static final int EXACT = 0;
+
+    /**
+     * Bound type: the true score is at least the stored score
+     */
+    static final int LOWER = 1;
+
+    /**
+     * Bound type: the true score is at most the stored score
+     */
+    static final int UPPER = 2;
+
+    /**
+     * Stored in place of a move when an entry has no best move
+     */
+    static final int NO_MOVE = -1;
+
+    /**
+     * Bytes used by one entry (check, packed data and score)
+     */
+    static final int ENTRY_BYTES = 24;
+
+    // layout of the packed data word
+    private static final int DEPTH_BITS = 8;
+    private static final int BOUND_SHIFT = 8;
+    private static final int MOVE_SHIFT = 10;
+    private static final int AGE_SHIFT = 26;
+    private static final long VALID = 1L << 62;
+
+    /**
+     * Hash of the position stored in each slot, XORed with its data and
+     * score words
+     */
+    private final long[] checks;
+
+    /**
+     * Depth, bound, best move and age of each slot, packed into one long.
+     * A value of 0 marks an empty slot.
+     */
+    private final long[] data;
+
+    /**
+     * Score of the position stored in each slot, as Double.doubleToRawLongBits()
+     */
+    private final long[] scores;
+
+    /**
+     * Mask applied to a hash to find its slot (entries - 1)
+     */
+    private final int indexMask;
+
+    /**
+     * Search number, increased by newSearch().  Entries with an older age
+     * are from earlier searches and are replaced first.
+     */
+    private volatile int age;
+
+    /**
+     * Number of probes that found the position they were looking for
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Number of probes that found an empty slot
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Number of probes that found a different position in the slot (or a
+     * slot that was being written at the same time)
+     */
+    private final LongAdder collisions = new LongAdder();
+
+    /**
+     * Constructor.  Creates a table using about the given number of
+     * megabytes.  The number of entries is rounded down to a power of two.
+     *
+     * @param sizeMB size of the table in megabytes, at least 1
+     */
+    public TranspositionTable(int sizeMB)
+    {
+        long bytes = Math.max(1, sizeMB) * 1024L * 1024L;
+        int entries = Integer.highestOneBit((int) Math.min(bytes / ENTRY_BYTES, 1 << 30));
+
+        checks = new long[entries];
+        data = new long[entries];
+        scores = new long[entries];
+        indexMask = entries - 1;
+    }
+
+    /**
+     * Returns the number of entries the table can hold.
+     *
+     * @return number of slots in the table
+     */
+    public int size()
+    {
+        return checks.length;
+    }
+
+    /**
+     * Marks the start of a new search.  Entries from earlier searches stay
+     * usable, but will be replaced before any entry from this search.  Call
+     * it once per search, before the search starts, not from each of the
+     * threads sharing the table.
+     */
+    public void newSearch()
+    {
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table and resets the statistics.  Must not be called
+     * while a search is using the table.
+     */
+    public void clear()
+    {
+        Arrays.fill(checks, 0);
+        Arrays.fill(data, 0);
+        Arrays.fill(scores, 0);
+        resetStatistics();
+    }
+
+    /**
+     * Resets the hit, miss and collision counters to zero.
+     */
+    public void resetStatistics()
+    {
+        hits.reset();
+        misses.reset();
+        collisions.reset();
+    }
+
+    /**
+     * Returns the number of probes that found the position they were
+     * looking for.
+     *
+     * @return number of table hits
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of probes that found an empty slot.
+     *
+     * @return number of table misses
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of probes that found a different position in the
+     * slot.
+     *
+     * @return number of table collisions
+     */
+    public long getCollisions()
+    {
+        return collisions.sum();
+    }
+
+    /**
+     * Looks up a position in the table, and if it is found copies the
+     * entry into the given TableEntry.
+     *
+     * @param key Zobrist hash of the position
+     * @param entry receives the depth, bound, best move and score if found
+     * @return true if the position was found, false if not
+     */
+    public boolean probe(long key, TableEntry entry)
+    {
+        int slot = (int) key & indexMask;
+        long word = data[slot];
+        long scoreBits = scores[slot];
+
+        if (word == 0)
+        {
+            misses.increment();
+            return false;
+        }
+
+        if ((checks[slot] ^ word ^ scoreBits) != key)
+        {
+            collisions.increment();
+            return false;
+        }
+
+        hits.increment();
+        entry.depth = (int) (word & ((1 << DEPTH_BITS) - 1));
+        entry.bound = (int) ((word >>> BOUND_SHIFT) & 3);
+        entry.move = (int) ((word >>> MOVE_SHIFT) & 0xFFFF) - 1;
+        entry.score = Double.longBitsToDouble(scoreBits);
+        return true;
+    }
+
+    /**
+     * Stores the result of searching a position.  The entry already in the
+     * slot is kept instead if it is from the current search, belongs to a
+     * different position, and was searched deeper.
+     *
+     * @param key Zobrist hash of the position
+     * @param depth number of levels searched below the position
+     * @param score score of the position
+     * @param bound one of EXACT, LOWER or UPPER
+     * @param move squares of the best move (the low bits of a PackedMove), or NO_MOVE
+     */
+    public void store(long key, int depth, double score, int bound, int move)
+    {
+        int slot = (int) key & indexMask;
+        int currentAge = age;
+        long old = data[slot];
+
+        if (old != 0 && (checks[slot] ^ old ^ scores[slot]) != key
+                && (int) ((old >>> AGE_SHIFT) & 0xFF) == currentAge
+                && (int) (old & ((1 << DEPTH_BITS) - 1)) > depth)
+        {
+            return;
+        }
+
+        long word = VALID
+                | ((long) currentAge << AGE_SHIFT)
+                | ((long) ((move + 1) & 0xFFFF) << MOVE_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | Math.min(depth, (1 << DEPTH_BITS) - 1);
+        long scoreBits = Double.doubleToRawLongBits(score);
+
+        data[slot] = word;
+        scores[slot] = scoreBits;
+        checks[slot] = key ^ word ^ scoreBits;
+    }
+
+    /**
+     * Returns the table statistics as one line of text, such as
+     * "tt hits: 10, misses: 5, collisions: 1".
+     *
+     * @return summary of the probe counters
+     */
+    public String getSummary()
+    {
+        return "tt hits: " + getHits() + ", misses: " + getMisses()
+                + ", collisions: " + getCollisions();
+    }
+}
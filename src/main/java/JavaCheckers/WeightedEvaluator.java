@@ -0,0 +1,257 @@
+package JavaCheckers;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * WeightedEvaluator scores a position as a weighted sum of features, each
+ * counted for the computer minus the same count for the player:
+ *
+ * <pre>
+ *   man        men on the board
+ *   king       kings on the board
+ *   backRank   men still guarding their own back row
+ *   center     pieces on the eight centre squares
+ *   mobility   regular (non-jump) moves available
+ *   runaway    men one or two rows from crowning with an empty square ahead
+ *   tempo      rows the men have advanced from their own back row
+ * </pre>
+ *
+ * <p> The weights can be tuned without recompiling by loading them from a
+ * properties file (see load()), one "feature=weight" line per weight to
+ * change.  Features left out keep their default weight.
+ *
+ * <p> Every feature is a popcount over the board's bitboards, so a position
+ * is scored without looping over the squares.  Scores are kept between
+ * -MAX_SCORE and MAX_SCORE (see Evaluator), so they never reach the win
+ * scores or outrank a tablebase win.
+ *
+ * @author Jason Hamilton
+ */
+public class WeightedEvaluator implements Evaluator
+{
+    /**
+     * Property names of the weights, in the order of the weights array
+     */
+    private static final String[] FEATURES = {
+        "man", "king", "backRank", "center", "mobility", "runaway", "tempo"
+    };
+
+    /**
+     * Default weights, in the order of FEATURES
+     */
+    private static final double[] DEFAULT_WEIGHTS = {
+        1.0, 1.5, 0.1, 0.05, 0.02, 0.3, 0.01
+    };
+
+    private static final int MAN = 0;
+    private static final int KING = 1;
+    private static final int BACK_RANK = 2;
+    private static final int CENTER = 3;
+    private static final int MOBILITY = 4;
+    private static final int RUNAWAY = 5;
+    private static final int TEMPO = 6;
+
+    /**
+     * The eight squares in the middle of rows 2-5
+     */
+    private static final int CENTER_SQUARES = 0x00666600;
+
+    /**
+     * Rows 5 and 6, where a computer man is one or two rows from crowning
+     */
+    private static final int ENEMY_RUNAWAY_ROWS = 0x0FF00000;
+
+    /**
+     * Rows 1 and 2, where a player man is one or two rows from crowning
+     */
+    private static final int PLAYER_RUNAWAY_ROWS = 0x00000FF0;
+
+    private final double[] weights;
+
+    /**
+     * Creates an evaluator with the default weights.
+     */
+    public WeightedEvaluator()
+    {
+        weights = DEFAULT_WEIGHTS.clone();
+    }
+
+    /**
+     * Creates an evaluator with weights read from properties.  Features not
+     * given keep their default weight.
+     *
+     * @param properties feature names mapped to weights
+     * @throws IllegalArgumentException if a name is not a feature, or a
+     *                                  weight is not a number
+     */
+    public WeightedEvaluator(Properties properties)
+    {
+        this();
+
+        for (String name : properties.stringPropertyNames())
+        {
+            int feature = featureIndex(name);
+            String value = properties.getProperty(name).trim();
+
+            try
+            {
+                weights[feature] = Double.parseDouble(value);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IllegalArgumentException("Weight of " + name
+                        + " is not a number: " + value, e);
+            }
+        }
+    }
+
+    /**
+     * Reads an evaluator's weights from a properties file.
+     *
+     * @param file properties file of feature=weight lines
+     * @return evaluator with the file's weights
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file has an unknown feature or
+     *                                  a weight that is not a number
+     */
+    public static WeightedEvaluator load(Path file) throws IOException
+    {
+        Properties properties = new Properties();
+
+        try (Reader reader = Files.newBufferedReader(file))
+        {
+            properties.load(reader);
+        }
+
+        return new WeightedEvaluator(properties);
+    }
+
+    /**
+     * Returns the weight of a feature.
+     *
+     * @param name feature name, as in the class description
+     * @return weight of the feature
+     * @throws IllegalArgumentException if the name is not a feature
+     */
+    public double getWeight(String name)
+    {
+        return weights[featureIndex(name)];
+    }
+
+    /**
+     * Returns the weights as properties, in the form load() reads.
+     *
+     * @return feature names mapped to weights
+     */
+    public Properties toProperties()
+    {
+        Properties properties = new Properties();
+
+        for (int i = 0; i < FEATURES.length; i++)
+        {
+            properties.setProperty(FEATURES[i], Double.toString(weights[i]));
+        }
+
+        return properties;
+    }
+
+    /**
+     * Scores a position as the weighted sum of the features.
+     *
+     * @param board position to score
+     * @return 100 for a computer win, -100 for a player win, otherwise the
+     *         weighted sum kept between -MAX_SCORE and MAX_SCORE (see
+     *         Evaluator)
+     */
+    @Override
+    public double evaluate(GameBoard board)
+    {
+        int player = board.getPieces(GameBoard.PLAYER);
+        int enemy = board.getPieces(GameBoard.ENEMY);
+
+        // a side with no pieces left has lost
+        if (enemy == 0)
+        {
+            return -100;
+        }
+        if (player == 0)
+        {
+            return 100;
+        }
+
+        int kings = board.getKings();
+        int playerMen = player & ~kings;
+        int enemyMen = enemy & ~kings;
+        int empty = ~(player | enemy);
+
+        double score = weights[MAN]
+                * (board.getMen(GameBoard.ENEMY) - board.getMen(GameBoard.PLAYER));
+        score += weights[KING]
+                * (board.getKingCount(GameBoard.ENEMY) - board.getKingCount(GameBoard.PLAYER));
+
+        // each side's back row is the other side's king row
+        score += weights[BACK_RANK]
+                * (Integer.bitCount(enemyMen & Bitboard.PLAYER_KING_ROW)
+                - Integer.bitCount(playerMen & Bitboard.ENEMY_KING_ROW));
+
+        score += weights[CENTER]
+                * (Integer.bitCount(enemy & CENTER_SQUARES)
+                - Integer.bitCount(player & CENTER_SQUARES));
+
+        score += weights[MOBILITY]
+                * (board.countMoves(GameBoard.ENEMY) - board.countMoves(GameBoard.PLAYER));
+
+        // computer men move down the board, player men move up
+        int enemyRunaways = enemyMen & ENEMY_RUNAWAY_ROWS
+                & (Bitboard.shiftNE(empty) | Bitboard.shiftNW(empty));
+        int playerRunaways = playerMen & PLAYER_RUNAWAY_ROWS
+                & (Bitboard.shiftSE(empty) | Bitboard.shiftSW(empty));
+        score += weights[RUNAWAY]
+                * (Integer.bitCount(enemyRunaways) - Integer.bitCount(playerRunaways));
+
+        // computer men advance from row 0, player men from row 7
+        int enemyAdvance = rowSum(enemyMen);
+        int playerAdvance = 7 * Integer.bitCount(playerMen) - rowSum(playerMen);
+        score += weights[TEMPO] * (enemyAdvance - playerAdvance);
+
+        return Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+    }
+
+    /**
+     * Adds up the row numbers of a set of squares, one bit of the row
+     * number at a time (square = row * 4 + column / 2).
+     *
+     * @param squares mask of squares
+     * @return sum of the rows of the squares
+     */
+    private static int rowSum(int squares)
+    {
+        return 4 * Integer.bitCount(squares & 0xFFFF0000)
+                + 2 * Integer.bitCount(squares & 0xFF00FF00)
+                + Integer.bitCount(squares & 0xF0F0F0F0);
+    }
+
+    /**
+     * Finds the position of a feature in the weights array.
+     *
+     * @param name feature name
+     * @return index into weights
+     * @throws IllegalArgumentException if the name is not a feature
+     */
+    private static int featureIndex(String name)
+    {
+        for (int i = 0; i < FEATURES.length; i++)
+        {
+            if (FEATURES[i].equals(name))
+            {
+                return i;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown evaluation feature: " + name);
+    }
+}
@@ -0,0 +1,82 @@
+package JavaCheckers;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist holds the random keys used to give every checkers position a
+ * 64-bit hash code.  A position's hash is the XOR of one key for each piece
+ * on the board (by piece type and square), plus a key when it is the
+ * computer's turn.  Because XOR undoes itself, GameBoard can update the
+ * hash for a move by XORing out the keys of the pieces that left their
+ * squares and XORing in the keys of the pieces that arrived.
+ *
+ * <p> The keys come from a fixed seed, so a position always has the same
+ * hash from one run of the program to the next.
+ *
+ * @author Jason Hamilton
+ */
+class Zobrist
+{
+    /**
+     * Seed for the key generator.  Changing it changes every hash code.
+     */
+    private static final long SEED = 0x4A61766143686BL;
+
+    /**
+     * Keys for each piece type (indexed by the GameBoard piece constants)
+     * on each square.  Index 0 (EMPTY) is unused.
+     */
+    static final long[][] PIECE_KEYS = new long[5][32];
+
+    /**
+     * Key XORed into the hash when it is the computer's (ENEMY's) turn
+     */
+    static final long ENEMY_TO_MOVE;
+
+    static
+    {
+        SplittableRandom random = new SplittableRandom(SEED);
+
+        for (int piece = GameBoard.PLAYER; piece <= GameBoard.ENEMY_KING; piece++)
+        {
+            for (int square = 0; square < 32; square++)
+            {
+                PIECE_KEYS[piece][square] = random.nextLong();
+            }
+        }
+
+        ENEMY_TO_MOVE = random.nextLong();
+    }
+
+    /**
+     * Not meant to be instantiated; all members are static.
+     */
+    private Zobrist()
+    {
+    }
+
+    /**
+     * Computes the hash of the pieces on a board from scratch.  GameBoard
+     * keeps its hash up to date incrementally; this is used to set it up
+     * and to check it.
+     *
+     * @param board board to hash
+     * @return XOR of the keys for every piece on the board
+     */
+    static long hashPieces(GameBoard board)
+    {
+        long hash = 0;
+
+        for (int square = 0; square < 32; square++)
+        {
+            int piece = board.pieceAt(Bitboard.row(square), Bitboard.col(square));
+
+            if (piece != GameBoard.EMPTY)
+            {
+                hash ^= PIECE_KEYS[piece][square];
+            }
+        }
+
+        return hash;
+    }
+}